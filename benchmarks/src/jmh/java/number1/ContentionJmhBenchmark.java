@@ -0,0 +1,126 @@
+package number1;
+
+import common.DiscreteProbabilityDistribution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH contention benchmark for one DiscreteProbabilityDistribution of 10^6 entries shared
+ * by every benchmark thread.
+ * <ul>
+ *   <li>queries: throughput of the moment getters mixed with cdf on an instance built with
+ *       precomputeCumulative. They only read final and volatile fields, so the total should
+ *       grow with the thread count up to the number of cores.</li>
+ *   <li>firstCdf: the first cdf call on a fresh, lazily built instance, which has to sort and
+ *       sum the table. One thread builds while the others wait for it, so the time per call
+ *       should stay near one build however many threads arrive together.</li>
+ * </ul>
+ * Run once per thread count, e.g.:
+ * gradle :benchmarks:jmh -PjmhInclude=ContentionJmhBenchmark -PjmhThreads=8
+ */
+public class ContentionJmhBenchmark {
+
+    private static final int SIZE = 1_000_000;
+
+    /**
+     * The shuffled table, so building the cumulative sums has to sort.
+     */
+    @State(Scope.Benchmark)
+    public static class Table {
+        double[] x;
+        double[] p;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(14);
+            x = new double[SIZE];
+            p = new double[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                x[i] = i;
+                p[i] = 1.0 / SIZE;
+            }
+            for (int i = SIZE - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double t = x[i];
+                x[i] = x[j];
+                x[j] = t;
+            }
+        }
+    }
+
+    /**
+     * One instance with the cumulative sums built up front, shared by every thread.
+     */
+    @State(Scope.Benchmark)
+    public static class Eager {
+        DiscreteProbabilityDistribution distribution;
+
+        @Setup(Level.Trial)
+        public void setUp(Table table) {
+            distribution = new DiscreteProbabilityDistribution(table.x, table.p, true);
+        }
+    }
+
+    /**
+     * A fresh lazily built instance for every iteration, so each one measures a first call.
+     */
+    @State(Scope.Benchmark)
+    public static class Lazy {
+        DiscreteProbabilityDistribution distribution;
+
+        @Setup(Level.Iteration)
+        public void setUp(Table table) {
+            distribution = new DiscreteProbabilityDistribution(table.x, table.p);
+        }
+    }
+
+    /**
+     * Each thread's own random stream and position in the query mix.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        final SplittableRandom random = new SplittableRandom();
+        int next;
+    }
+
+    // --- Shared queries ---
+
+    /**
+     * One query of the mix: the three moment getters and a cdf call, in turn.
+     */
+    private static double query(Eager eager, Caller caller) {
+        DiscreteProbabilityDistribution distribution = eager.distribution;
+        switch (caller.next++ & 3) {
+            case 0: return distribution.getExpectedValue();
+            case 1: return distribution.getVariance();
+            case 2: return distribution.getStandardDeviation();
+            default: return distribution.cdf(caller.random.nextInt(SIZE));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double queries(Eager eager, Caller caller) {
+        return query(eager, caller);
+    }
+
+    // --- First call on a lazy instance ---
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double firstCdf(Lazy lazy) {
+        return lazy.distribution.cdf(SIZE / 2.0);
+    }
+}
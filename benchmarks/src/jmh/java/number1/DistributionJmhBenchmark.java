@@ -0,0 +1,126 @@
+package number1;
+
+import common.DiscreteProbabilityDistribution;
+import common.Moments;
+import common.ReportFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for DiscreteProbabilityDistribution and its reporter: construction,
+ * moments, copying versus read-only access and reports. Shared cumulative queries
+ * are measured by ContentionJmhBenchmark.
+ * Run with: gradle :benchmarks:jmh -PjmhInclude=DistributionJmhBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DistributionJmhBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private double[] x;
+    private double[] p;
+    private DiscreteProbabilityDistribution distribution;
+    private DistributionReporter reporter;
+    private WritableByteChannel discard;
+
+    @Setup
+    public void setUp() {
+        // Shuffled x values, so building the cumulative sums has to sort
+        SplittableRandom random = new SplittableRandom(17);
+        x = new double[size];
+        p = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i;
+            p[i] = 1.0 / size;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double t = x[i];
+            x[i] = x[j];
+            x[j] = t;
+        }
+        distribution = new DiscreteProbabilityDistribution(x, p, true);
+        reporter = new DistributionReporter(distribution);
+        discard = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    // --- Construction ---
+
+    @Benchmark
+    public DiscreteProbabilityDistribution construct() {
+        return new DiscreteProbabilityDistribution(x, p);
+    }
+
+    @Benchmark
+    public DiscreteProbabilityDistribution constructWithCumulative() {
+        return new DiscreteProbabilityDistribution(x, p, true);
+    }
+
+    // --- Moments ---
+
+    /**
+     * The single pass the constructor runs to validate and compute every moment.
+     */
+    @Benchmark
+    public Moments moments() {
+        return Moments.of(x, p);
+    }
+
+    // --- Getters ---
+
+    @Benchmark
+    public double[] copyXValues() {
+        return distribution.getXValues();
+    }
+
+    @Benchmark
+    public double[] copyPValues() {
+        return distribution.getPValues();
+    }
+
+    /**
+     * The same data as copyPValues, read through the allocation-free accessor.
+     */
+    @Benchmark
+    public double readPValues() {
+        double sum = 0.0;
+        for (int i = 0, n = distribution.getSize(); i < n; i++) {
+            sum += distribution.getP(i);
+        }
+        return sum;
+    }
+
+    // --- Reports ---
+
+    @Benchmark
+    public void reportText() throws IOException {
+        reporter.writeReport(discard, ReportFormat.TEXT);
+    }
+
+    @Benchmark
+    public void reportCsv() throws IOException {
+        reporter.writeReport(discard, ReportFormat.CSV);
+    }
+
+    @Benchmark
+    public void reportJson() throws IOException {
+        reporter.writeReport(discard, ReportFormat.JSON);
+    }
+}
@@ -0,0 +1,112 @@
+package number1;
+
+import common.DiscreteProbabilityDistribution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of AliasSampler draws against inverse-CDF linear search,
+ * for 10, 10^3 and 10^6 outcomes with P(i) proportional to 1 / i.
+ * Scores are per draw.
+ * Run with: gradle :benchmarks:jmh -PjmhInclude=SamplingJmhBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SamplingJmhBenchmark {
+
+    private static final int DRAWS = 1024;
+
+    @Param({"10", "1000", "1000000"})
+    public int outcomes;
+
+    private DiscreteProbabilityDistribution distribution;
+    private AliasSampler sampler;
+    private SplittableRandom random;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        double[] x = new double[outcomes];
+        double[] p = new double[outcomes];
+        double total = 0.0;
+        for (int i = 0; i < outcomes; i++) {
+            x[i] = i + 1;
+            p[i] = 1.0 / (i + 1);
+            total += p[i];
+        }
+        for (int i = 0; i < outcomes; i++) {
+            p[i] /= total;
+        }
+        distribution = new DiscreteProbabilityDistribution(x, p);
+        sampler = new AliasSampler(distribution, 7);
+        random = new SplittableRandom(7);
+        out = new double[DRAWS];
+    }
+
+    // --- Alias method ---
+
+    /**
+     * Building the alias table, once per distribution.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public AliasSampler aliasBuild() {
+        return new AliasSampler(distribution, 7);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public double aliasSample() {
+        double sum = 0.0;
+        for (int i = 0; i < DRAWS; i++) {
+            sum += sampler.sample(random);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public double[] aliasFill() {
+        sampler.fill(out, random);
+        return out;
+    }
+
+    // --- Inverse CDF ---
+
+    /**
+     * Walks P(1), P(2), ... until the running sum passes u: O(outcomes) per draw,
+     * but the 1 / i skew ends most walks early.
+     */
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public double linearSearch() {
+        double sum = 0.0;
+        int last = distribution.getSize() - 1;
+        for (int d = 0; d < DRAWS; d++) {
+            double u = random.nextDouble();
+            double cumulative = 0.0;
+            double value = distribution.getX(last);
+            for (int i = 0; i < last; i++) {
+                cumulative += distribution.getP(i);
+                if (u < cumulative) {
+                    value = distribution.getX(i);
+                    break;
+                }
+            }
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,167 @@
+package number2;
+
+import common.ReportFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the binomial calculations: single probabilities at each precision,
+ * table construction, sweeps over a grid of p, copying versus read-only access and reports.
+ * Run with: gradle :benchmarks:jmh -PjmhInclude=BinomialJmhBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinomialJmhBenchmark {
+
+    private static final double P = 0.3;
+
+    /**
+     * A LOG_RECURRENCE table and its reporter, for each size.
+     */
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Param({"100", "10000", "1000000"})
+        public int n;
+
+        int k;
+        BinomialDistribution distribution;
+        BinomialReporter reporter;
+        WritableByteChannel discard;
+
+        @Setup
+        public void setUp() {
+            k = (int) (n * P);
+            distribution = new BinomialDistribution(n, P, BinomialDistribution.TableMode.LOG_RECURRENCE);
+            reporter = new BinomialReporter(distribution);
+            discard = Channels.newChannel(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * DIRECT tables cost O(n^2), so they get their own, smaller sizes.
+     */
+    @State(Scope.Benchmark)
+    public static class DirectTable {
+        @Param({"100", "1000"})
+        public int directN;
+    }
+
+    /**
+     * A grid of p values spread evenly over (0, 1), for each n and grid size.
+     * 100 tables of 10^5 + 1 entries take 80 MB, so n stays below the Table sizes.
+     */
+    @State(Scope.Benchmark)
+    public static class Grid {
+        @Param({"1000", "100000"})
+        public int sweepN;
+
+        @Param({"10", "100"})
+        public int gridSize;
+
+        double[] p;
+
+        @Setup
+        public void setUp() {
+            p = new double[gridSize];
+            for (int j = 0; j < gridSize; j++) {
+                p[j] = (j + 1.0) / (gridSize + 1.0);
+            }
+        }
+    }
+
+    // --- Single probabilities ---
+
+    @Benchmark
+    public double probabilityFast(Table table) {
+        return BinomialMath.calculateProbability(table.n, table.k, P);
+    }
+
+    @Benchmark
+    public double probabilityLog(Table table) {
+        return BinomialMath.calculateProbability(table.n, table.k, P, BinomialMath.Precision.LOG);
+    }
+
+    @Benchmark
+    public double probabilityApproximation(Table table) {
+        return new BinomialApproximation(table.n, P, 1e-12).probability(table.k);
+    }
+
+    // --- Construction ---
+
+    @Benchmark
+    public BinomialDistribution constructLogRecurrence(Table table) {
+        return new BinomialDistribution(table.n, P, BinomialDistribution.TableMode.LOG_RECURRENCE);
+    }
+
+    @Benchmark
+    public BinomialDistribution constructDirect(DirectTable table) {
+        return new BinomialDistribution(table.directN, P, BinomialDistribution.TableMode.DIRECT);
+    }
+
+    @Benchmark
+    public TruncatedBinomialDistribution constructTruncated(Table table) {
+        return new TruncatedBinomialDistribution(table.n, P);
+    }
+
+    // --- Sweeps ---
+
+    @Benchmark
+    public BinomialSweep sweepOverP(Grid grid) {
+        return BinomialSweep.overP(grid.sweepN, grid.p);
+    }
+
+    /**
+     * The baseline for sweepOverP: one LOG_RECURRENCE table per grid point, one after another.
+     */
+    @Benchmark
+    public void constructEachOverP(Grid grid, Blackhole blackhole) {
+        for (double p : grid.p) {
+            blackhole.consume(new BinomialDistribution(grid.sweepN, p, BinomialDistribution.TableMode.LOG_RECURRENCE));
+        }
+    }
+
+    // --- Getters ---
+
+    @Benchmark
+    public double[] copyProbabilities(Table table) {
+        return table.distribution.getAllProbabilities();
+    }
+
+    /**
+     * The same data as copyProbabilities, read through the allocation-free accessor.
+     */
+    @Benchmark
+    public double readProbabilities(Table table) {
+        double sum = 0.0;
+        for (int i = 0; i <= table.n; i++) {
+            sum += table.distribution.getProbability(i);
+        }
+        return sum;
+    }
+
+    // --- Reports ---
+
+    @Benchmark
+    public void reportText(Table table) throws IOException {
+        table.reporter.writeDistributionTable(table.discard, ReportFormat.TEXT);
+    }
+
+    @Benchmark
+    public void reportCsv(Table table) throws IOException {
+        table.reporter.writeDistributionTable(table.discard, ReportFormat.CSV);
+    }
+}
@@ -0,0 +1,93 @@
+package common;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Simple benchmark for Convolution, in package common so it can time the direct and FFT
+ * kernels separately.
+ * Run with: gradle :benchmarks:runConvolutionBenchmark
+ * Timings are the best of several runs after a short warm-up.
+ */
+public class ConvolutionBenchmark {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    // Keeps the JIT from optimising away loops whose results are otherwise unused
+    private static double sink;
+
+    /**
+     * Compares direct and FFT convolution of two random tables of equal size, from sizes around
+     * the crossover up to 10^6, and reports what Convolution.convolve picks and how far the FFT
+     * result is from the direct one. Then times m-fold sums of a die by exponentiation by squaring.
+     */
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(15);
+        System.out.println("Convolution of two tables of equal size");
+        System.out.println("    size | direct (ms) |    FFT (ms) | auto   | max |FFT - direct| / max");
+        System.out.println("---------|-------------|-------------|--------|--------------------------");
+        int[] sizes = {64, 128, 256, 512, 1_000, 10_000, 100_000, 1_000_000};
+        for (int size : sizes) {
+            double[] a = new double[size];
+            double[] b = new double[size];
+            for (int i = 0; i < size; i++) {
+                a[i] = random.nextDouble();
+                b[i] = random.nextDouble();
+            }
+            double fftMs = bestOfMillis(() -> sink += Convolution.convolveFft(a, b)[0]);
+            double[] fft = Convolution.convolveFft(a, b);
+            boolean autoDirect = Convolution.prefersDirect(a.length, b.length);
+            if (size <= 100_000) {
+                // Direct is quadratic: 10^5 already takes seconds, so only one run there
+                int runs = (size < 100_000) ? MEASURED_RUNS : 1;
+                long start = System.nanoTime();
+                double[] direct = Convolution.convolveDirect(a, b);
+                double firstMs = (System.nanoTime() - start) / 1e6;
+                double directMs = (runs > 1) ? bestOfMillis(() -> sink += Convolution.convolveDirect(a, b)[0]) : firstMs;
+                double maxDiff = 0;
+                double max = 0;
+                for (int i = 0; i < direct.length; i++) {
+                    maxDiff = Math.max(maxDiff, Math.abs(direct[i] - fft[i]));
+                    max = Math.max(max, direct[i]);
+                }
+                System.out.println(String.format(Locale.ROOT, " %7d | %11.3f | %11.3f | %-6s | %.2e",
+                        size, directMs, fftMs, autoDirect ? "direct" : "FFT", maxDiff / max));
+            } else {
+                System.out.println(String.format(Locale.ROOT, " %7d | %11s | %11.3f | %-6s | -",
+                        size, "skipped", fftMs, autoDirect ? "direct" : "FFT"));
+            }
+        }
+
+        DiscreteProbabilityDistribution die = new DiscreteProbabilityDistribution(
+                new double[] {1, 2, 3, 4, 5, 6}, new double[] {1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0});
+        System.out.println("\nSum of m dice by exponentiation by squaring");
+        System.out.println("       m | support | time (ms) | E[X] rel. error | Var(X) rel. error");
+        System.out.println("---------|---------|-----------|-----------------|------------------");
+        for (int m = 1_000; m <= 100_000; m *= 10) {
+            final int copies = m;
+            double millis = bestOfMillis(() -> sink += Convolution.power(die, copies).getSize());
+            DiscreteProbabilityDistribution sum = Convolution.power(die, m);
+            System.out.println(String.format(Locale.ROOT, " %7d | %7d | %9.3f | %15.2e | %16.2e",
+                    m, sum.getSize(), millis,
+                    Math.abs(sum.getExpectedValue() / (3.5 * m) - 1),
+                    Math.abs(sum.getVariance() / (35.0 / 12.0 * m) - 1)));
+        }
+    }
+
+    /**
+     * Runs the task a few times to warm up, then returns the fastest of the measured runs.
+     */
+    static double bestOfMillis(Runnable task) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+}
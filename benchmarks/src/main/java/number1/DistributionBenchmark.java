@@ -0,0 +1,351 @@
+package number1;
+
+import common.DistributionBatch;
+import common.DiscreteProbabilityDistribution;
+import common.Moments;
+
+import java.lang.management.ManagementFactory;
+import java.nio.DoubleBuffer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Simple benchmarks for DiscreteProbabilityDistribution and its reporter.
+ * Run with: gradle :benchmarks:runDistributionBenchmark [-Psection=<name>]
+ * Timings are the best of several runs after a short warm-up.
+ */
+public class DistributionBenchmark {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    // Keeps the JIT from optimising away loops whose results are otherwise unused
+    private static double sink;
+
+    public static void main(String[] args) {
+        String section = args.length > 0 ? args[0] : "all";
+        switch (section) {
+            case "access":
+                benchmarkTableAccess();
+                break;
+            case "cdf":
+                benchmarkCumulativeQueries();
+                break;
+            case "batch":
+                benchmarkBatch();
+                break;
+            case "moments":
+                benchmarkMoments();
+                break;
+            case "builder":
+                benchmarkBuilder();
+                break;
+            case "all":
+                benchmarkTableAccess();
+                benchmarkCumulativeQueries();
+                benchmarkBatch();
+                benchmarkMoments();
+                benchmarkBuilder();
+                break;
+            default:
+                System.err.println("Unknown section: " + section);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Measures the garbage produced by reading a distribution the way DistributionReporter
+     * does (two sections, each reading x and P(x) for every entry): once through the copying
+     * getters and once through each of the read-only accessors.
+     */
+    static void benchmarkTableAccess() {
+        int size = 1_000_000;
+        DiscreteProbabilityDistribution distribution = uniform(size);
+        System.out.println("Table access per report, size = " + size);
+        System.out.println(" access path           | bytes allocated | time (ms)");
+        System.out.println("-----------------------|-----------------|----------");
+        printAccess("getXValues/getPValues", distribution, () -> {
+            for (int section = 0; section < 2; section++) {
+                double[] x = distribution.getXValues();
+                double[] p = distribution.getPValues();
+                double sum = 0;
+                for (int i = 0; i < distribution.getSize(); i++) {
+                    sum += x[i] * p[i];
+                }
+                sink += sum;
+            }
+        });
+        printAccess("getX(i)/getP(i)", distribution, () -> {
+            for (int section = 0; section < 2; section++) {
+                double sum = 0;
+                for (int i = 0; i < distribution.getSize(); i++) {
+                    sum += distribution.getX(i) * distribution.getP(i);
+                }
+                sink += sum;
+            }
+        });
+        printAccess("DoubleBuffer views", distribution, () -> {
+            for (int section = 0; section < 2; section++) {
+                DoubleBuffer x = distribution.getXBuffer();
+                DoubleBuffer p = distribution.getPBuffer();
+                double sum = 0;
+                for (int i = 0; i < distribution.getSize(); i++) {
+                    sum += x.get(i) * p.get(i);
+                }
+                sink += sum;
+            }
+        });
+        printAccess("forEach visitor", distribution, () -> {
+            for (int section = 0; section < 2; section++) {
+                double[] sum = new double[1];
+                distribution.forEach((i, p) -> sum[0] += distribution.getX(i) * p);
+                sink += sum[0];
+            }
+        });
+    }
+
+    /**
+     * Times 10^6 random cumulative queries against a 10^6-point distribution and compares
+     * them with the linear scan callers had to write before (measured on fewer queries).
+     */
+    static void benchmarkCumulativeQueries() {
+        int size = 1_000_000;
+        int queries = 1_000_000;
+        int scanQueries = 1_000;
+        DiscreteProbabilityDistribution distribution = uniform(size);
+        Random random = new Random(42);
+        double[] points = new double[queries];
+        double[] levels = new double[queries];
+        for (int i = 0; i < queries; i++) {
+            points[i] = 1 + random.nextInt(size);
+            levels[i] = random.nextDouble();
+        }
+
+        long start = System.nanoTime();
+        distribution.cdf(0); // First query builds the prefix sums
+        double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        System.out.println("\nCumulative queries, size = " + size + ", " + queries + " random queries");
+        System.out.println(String.format(Locale.ROOT, "Prefix sum build : %10.3f ms", buildMs));
+        printQuery("cdf", queries, bestOfMillis(() -> {
+            double sum = 0;
+            for (double x : points) {
+                sum += distribution.cdf(x);
+            }
+            sink += sum;
+        }));
+        printQuery("survival", queries, bestOfMillis(() -> {
+            double sum = 0;
+            for (double x : points) {
+                sum += distribution.survival(x);
+            }
+            sink += sum;
+        }));
+        printQuery("rangeProbability", queries, bestOfMillis(() -> {
+            double sum = 0;
+            for (int i = 1; i < queries; i++) {
+                sum += distribution.rangeProbability(Math.min(points[i - 1], points[i]), Math.max(points[i - 1], points[i]));
+            }
+            sink += sum;
+        }));
+        printQuery("quantile", queries, bestOfMillis(() -> {
+            double sum = 0;
+            for (double u : levels) {
+                sum += distribution.quantile(u);
+            }
+            sink += sum;
+        }));
+        printQuery("linear scan cdf", scanQueries, bestOfMillis(() -> {
+            double sum = 0;
+            for (int q = 0; q < scanQueries; q++) {
+                for (int i = 0; i < distribution.getSize(); i++) {
+                    if (distribution.getX(i) <= points[q]) {
+                        sum += distribution.getP(i);
+                    }
+                }
+            }
+            sink += sum;
+        }));
+    }
+
+    /**
+     * Evaluates 10,000 tables of 1,000 entries one after another through
+     * DiscreteProbabilityDistribution, then with DistributionBatch on pools of 1 up to
+     * all available cores. Near-linear scaling shows as speedup close to the pool size.
+     */
+    static void benchmarkBatch() {
+        int tables = 10_000;
+        int size = 1_000;
+        double[][] x = new double[tables][];
+        double[][] p = new double[tables][];
+        for (int t = 0; t < tables; t++) {
+            DiscreteProbabilityDistribution table = uniform(size);
+            x[t] = table.getXValues();
+            p[t] = table.getPValues();
+        }
+        double sequentialMs = bestOfMillis(() -> {
+            double sum = 0;
+            for (int t = 0; t < tables; t++) {
+                DiscreteProbabilityDistribution d = new DiscreteProbabilityDistribution(x[t], p[t]);
+                sum += d.getExpectedValue() + d.getStandardDeviation();
+            }
+            sink += sum;
+        });
+        System.out.println("\nBatch evaluation, " + tables + " tables of " + size + " entries");
+        System.out.println(String.format(Locale.ROOT, "one by one        : %9.3f ms", sequentialMs));
+        int cores = Runtime.getRuntime().availableProcessors();
+        double singleMs = 0;
+        for (int threads = 1; threads <= cores; threads = (threads == cores) ? cores + 1 : Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double millis = bestOfMillis(() -> sink += DistributionBatch.evaluate(x, p, pool).getExpectedValue(0));
+            pool.shutdown();
+            if (threads == 1) {
+                singleMs = millis;
+            }
+            System.out.println(String.format(Locale.ROOT, "batch, %2d thread%s : %9.3f ms  (speedup %.2fx)",
+                    threads, threads == 1 ? " " : "s", millis, singleMs / millis));
+        }
+    }
+
+    /**
+     * Compares the old separate validation, mean and variance loops with the single
+     * blocked pass of Moments, for speed and for accuracy. The accuracy table uses
+     * x = 10^8 + k, k = 0..2^20-1, each with probability 2^-20 (exact in binary), whose
+     * mean 10^8 + (2^20-1)/2 and variance (2^40-1)/12 are known exactly.
+     */
+    static void benchmarkMoments() {
+        int size = 1 << 20;
+        double[] x = new double[size];
+        double[] p = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = 1e8 + i;
+            p[i] = 1.0 / size;
+        }
+        double exactMean = 1e8 + (size - 1) / 2.0;
+        double exactVariance = ((double) size * size - 1) / 12.0;
+
+        double[] naive = naiveMoments(x, p);
+        Moments moments = Moments.of(x, p);
+        System.out.println("\nMoments, " + size + " entries");
+        System.out.println(" method            | time (ms) | mean rel. error | variance rel. error");
+        System.out.println("-------------------|-----------|-----------------|--------------------");
+        System.out.println(String.format(Locale.ROOT, " %-17s | %9.3f | %15.2e | %19.2e", "three loops",
+                bestOfMillis(() -> sink += naiveMoments(x, p)[1]),
+                Math.abs(naive[0] - exactMean) / exactMean, Math.abs(naive[1] - exactVariance) / exactVariance));
+        System.out.println(String.format(Locale.ROOT, " %-17s | %9.3f | %15.2e | %19.2e", "Moments (1 pass)",
+                bestOfMillis(() -> sink += Moments.of(x, p).getVariance()),
+                Math.abs(moments.getMean() - exactMean) / exactMean,
+                Math.abs(moments.getVariance() - exactVariance) / exactVariance));
+        System.out.println(String.format(Locale.ROOT, "Skewness %.3e, excess kurtosis %.6f (uniform: -1.2), entropy %.6f (ln n = %.6f)",
+                moments.getSkewness(), moments.getExcessKurtosis(), moments.getEntropy(), Math.log(size)));
+    }
+
+    /**
+     * Streams 10^7 observations into a DistributionBuilder and takes snapshots along the way.
+     * Snapshot cost depends on the number of distinct values, not on the observations so far.
+     */
+    static void benchmarkBuilder() {
+        int observations = 10_000_000;
+        double[] stream = new double[observations];
+        Random random = new Random(11);
+        for (int i = 0; i < observations; i++) {
+            stream[i] = Math.rint(random.nextGaussian() * 1_000); // About 10^4 distinct values
+        }
+        System.out.println("\nStreaming builder, " + observations + " observations");
+        double addMs = bestOfMillis(() -> {
+            DistributionBuilder builder = new DistributionBuilder();
+            builder.addAll(stream);
+            sink += builder.getMean();
+        });
+        System.out.println(String.format(Locale.ROOT, "add              : %8.1f ns/observation", addMs * 1_000_000 / observations));
+
+        DistributionBuilder builder = new DistributionBuilder();
+        for (int chunk = 1; chunk <= 4; chunk++) {
+            for (int i = (chunk - 1) * observations / 4; i < chunk * observations / 4; i++) {
+                builder.add(stream[i]);
+            }
+            double snapshotMs = bestOfMillis(() -> sink += builder.snapshot().getSize());
+            DiscreteProbabilityDistribution snapshot = builder.snapshot();
+            System.out.println(String.format(Locale.ROOT,
+                    "after %8d     : snapshot %7.3f ms, %5d distinct, mean %.4f (snapshot %.4f), variance %.2f (snapshot %.2f)",
+                    builder.getCount(), snapshotMs, builder.getDistinctCount(), builder.getMean(),
+                    snapshot.getExpectedValue(), builder.getVariance(), snapshot.getVariance()));
+        }
+    }
+
+    /**
+     * The pre-Moments approach: a validation loop, then Σ x P(x), then Σ (x - μ)² P(x).
+     */
+    private static double[] naiveMoments(double[] x, double[] p) {
+        double sumP = 0;
+        for (double prob : p) {
+            if (prob < 0 || prob > 1) {
+                throw new IllegalArgumentException("Probability out of range: " + prob);
+            }
+            sumP += prob;
+        }
+        double mean = 0;
+        for (int i = 0; i < x.length; i++) {
+            mean += x[i] * p[i];
+        }
+        double variance = 0;
+        for (int i = 0; i < x.length; i++) {
+            double deviation = x[i] - mean;
+            variance += deviation * deviation * p[i];
+        }
+        return new double[] {mean, variance, sumP};
+    }
+
+    private static void printQuery(String name, int queries, double millis) {
+        System.out.println(String.format(Locale.ROOT, "%-17s: %10.1f ns/query", name, millis * 1_000_000 / queries));
+    }
+
+    private static void printAccess(String name, DiscreteProbabilityDistribution distribution, Runnable pass) {
+        double millis = bestOfMillis(pass);
+        long bytes = allocatedBytes(pass);
+        System.out.println(String.format(Locale.ROOT, " %-21s | %15d | %9.3f", name, bytes, millis));
+    }
+
+    /**
+     * Returns a uniform distribution over 1..size.
+     */
+    static DiscreteProbabilityDistribution uniform(int size) {
+        double[] x = new double[size];
+        double[] p = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i + 1;
+            p[i] = 1.0 / size;
+        }
+        return new DiscreteProbabilityDistribution(x, p);
+    }
+
+    /**
+     * Returns the number of bytes the current thread allocates while running the task once.
+     * Relies on the HotSpot extension of ThreadMXBean.
+     */
+    static long allocatedBytes(Runnable task) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        task.run(); // Warm up so class loading and JIT work don't count
+        long before = threads.getCurrentThreadAllocatedBytes();
+        task.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * Runs the task a few times to warm up, then returns the fastest of the measured runs.
+     */
+    static double bestOfMillis(Runnable task) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+}
@@ -0,0 +1,655 @@
+package number2;
+
+import common.DiscreteProbabilityDistribution;
+import common.ReportFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Simple wall-clock benchmarks for the binomial calculations.
+ * Run with: gradle :benchmarks:runBinomialBenchmark [-Psection=<name>]
+ * Each measurement is the best of several runs after a short warm-up.
+ */
+public class BinomialBenchmark {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    // DIRECT is O(n^2), beyond this n a single run takes far too long to be worth measuring
+    private static final int DIRECT_MAX_N = 100_000;
+
+    public static void main(String[] args) {
+        String section = args.length > 0 ? args[0] : "all";
+        switch (section) {
+            case "table":
+                benchmarkTableGeneration();
+                break;
+            case "truncated":
+                benchmarkTruncatedWindow();
+                break;
+            case "cache":
+                benchmarkCache();
+                break;
+            case "cdf":
+                benchmarkCumulativeQueries();
+                break;
+            case "sampler":
+                benchmarkSampler();
+                break;
+            case "file":
+                benchmarkMappedFile();
+                break;
+            case "report":
+                benchmarkReport();
+                break;
+            case "math":
+                benchmarkPrecision();
+                break;
+            case "sums":
+                benchmarkSums();
+                break;
+            case "approx":
+                benchmarkApproximation();
+                break;
+            case "all":
+                benchmarkTableGeneration();
+                benchmarkTruncatedWindow();
+                benchmarkCache();
+                benchmarkCumulativeQueries();
+                benchmarkSampler();
+                benchmarkMappedFile();
+                benchmarkReport();
+                benchmarkPrecision();
+                benchmarkSums();
+                benchmarkApproximation();
+                break;
+            default:
+                System.err.println("Unknown section: " + section);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Compares DIRECT and LOG_RECURRENCE table generation for n = 10^3 ... 10^7.
+     */
+    static void benchmarkTableGeneration() {
+        System.out.println("Table generation, p = 0.5 (best of " + MEASURED_RUNS + " runs)");
+        System.out.println("       n |     DIRECT (ms) | RECURRENCE (ms) | speedup | DIRECT sum");
+        System.out.println("---------|-----------------|-----------------|---------|-----------");
+        for (int n = 1_000; n <= 10_000_000; n *= 10) {
+            final int size = n;
+            double recurrenceMs = bestOfMillis(() -> new BinomialDistribution(size, 0.5,
+                    BinomialDistribution.TableMode.LOG_RECURRENCE));
+            if (n <= DIRECT_MAX_N) {
+                // A single DIRECT run at the top size already takes seconds, so don't repeat it
+                int runs = (n < DIRECT_MAX_N) ? MEASURED_RUNS : 1;
+                double directMs = bestOfMillis(() -> new BinomialDistribution(size, 0.5,
+                        BinomialDistribution.TableMode.DIRECT), runs - 1, runs);
+                double directSum = new BinomialDistribution(n, 0.5).getTotalProbabilitySum();
+                System.out.println(String.format(Locale.ROOT, "%8d | %15.3f | %15.3f | %6.0fx | %s",
+                        n, directMs, recurrenceMs, directMs / recurrenceMs, directSum));
+            } else {
+                System.out.println(String.format(Locale.ROOT, "%8d | %15s | %15.3f | %7s | %s",
+                        n, "skipped", recurrenceMs, "-", "-"));
+            }
+        }
+    }
+
+    /**
+     * Compares the full LOG_RECURRENCE table against the truncated window for growing n.
+     */
+    static void benchmarkTruncatedWindow() {
+        System.out.println("\nTruncated window, p = 0.3, epsilon = " + TruncatedBinomialDistribution.DEFAULT_EPSILON);
+        System.out.println("         n | full (ms) | full (KiB) | window (ms) | window (KiB) | window size | discarded");
+        System.out.println("-----------|-----------|------------|-------------|--------------|-------------|----------");
+        for (int n = 1_000; n <= 100_000_000; n *= 10) {
+            final int size = n;
+            double fullMs = bestOfMillis(() -> new BinomialDistribution(size, 0.3,
+                    BinomialDistribution.TableMode.LOG_RECURRENCE));
+            double windowMs = bestOfMillis(() -> new TruncatedBinomialDistribution(size, 0.3));
+            TruncatedBinomialDistribution window = new TruncatedBinomialDistribution(n, 0.3);
+            System.out.println(String.format(Locale.ROOT, "%10d | %9.3f | %10d | %11.3f | %12d | %11d | %.2e",
+                    n, fullMs, (n + 1L) * Double.BYTES / 1024, windowMs,
+                    (long) window.getWindowSize() * Double.BYTES / 1024,
+                    window.getWindowSize(), window.getDiscardedMass()));
+        }
+    }
+
+    /**
+     * Compares building a table against fetching it from BinomialDistributions, then has
+     * several threads ask for the same missing key at once to show it is computed only once.
+     */
+    static void benchmarkCache() {
+        int n = 1_000_000;
+        int lookups = 100_000;
+        BinomialDistributions cache = new BinomialDistributions(BinomialDistributions.DEFAULT_MAX_BYTES);
+        double buildMs = bestOfMillis(() -> new BinomialDistribution(n, 0.5,
+                BinomialDistribution.TableMode.LOG_RECURRENCE));
+        double lookupMs = bestOfMillis(() -> {
+            for (int i = 0; i < lookups; i++) {
+                cache.get(n, 0.5);
+            }
+        });
+        System.out.println("\nCache, n = " + n);
+        System.out.println(String.format(Locale.ROOT, "Build table     : %10.3f us", buildMs * 1000));
+        System.out.println(String.format(Locale.ROOT, "Cached lookup   : %10.3f us", lookupMs * 1000 / lookups));
+
+        // Eight threads race for the same key on an empty cache
+        cache.clear();
+        long missesBefore = cache.getMissCount();
+        long waitsBefore = cache.getWaitCount();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> cache.get(n, 0.25));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        System.out.println("Concurrent miss : " + threads.length + " threads, "
+                + (cache.getMissCount() - missesBefore) + " computation(s), "
+                + (cache.getWaitCount() - waitsBefore) + " waited for it");
+
+        // Fill a small cache past its bound to exercise eviction
+        BinomialDistributions small = new BinomialDistributions(10 * (n + 1L) * Double.BYTES);
+        for (int i = 1; i <= 25; i++) {
+            small.get(n, i / 100.0);
+        }
+        System.out.println("Bounded cache   : " + small.getSize() + " entries, " + small.getCachedBytes()
+                + " bytes, hits=" + small.getHitCount() + " misses=" + small.getMissCount()
+                + " evictions=" + small.getEvictionCount());
+    }
+
+    /**
+     * Times 10^6 random cdf / survival / range / quantile queries against n = 10^6.
+     */
+    static void benchmarkCumulativeQueries() {
+        int n = 1_000_000;
+        int queries = 1_000_000;
+        BinomialDistribution distribution = new BinomialDistribution(n, 0.5,
+                BinomialDistribution.TableMode.LOG_RECURRENCE);
+        Random random = new Random(42);
+        int[] points = new int[queries];
+        double[] levels = new double[queries];
+        for (int i = 0; i < queries; i++) {
+            points[i] = random.nextInt(n + 1);
+            levels[i] = random.nextDouble();
+        }
+        long start = System.nanoTime();
+        distribution.cdf(0); // First query builds the prefix sums
+        double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        double[] sink = new double[1];
+        System.out.println("\nCumulative queries, n = " + n + ", " + queries + " random queries");
+        System.out.println(String.format(Locale.ROOT, "Prefix sum build : %10.3f ms", buildMs));
+        printPerQuery("cdf", queries, bestOfMillis(() -> {
+            for (int k : points) {
+                sink[0] += distribution.cdf(k);
+            }
+        }));
+        printPerQuery("survival", queries, bestOfMillis(() -> {
+            for (int k : points) {
+                sink[0] += distribution.survival(k);
+            }
+        }));
+        printPerQuery("rangeProbability", queries, bestOfMillis(() -> {
+            for (int i = 1; i < queries; i++) {
+                sink[0] += distribution.rangeProbability(points[i - 1], points[i]);
+            }
+        }));
+        printPerQuery("quantile", queries, bestOfMillis(() -> {
+            for (double u : levels) {
+                sink[0] += distribution.quantile(u);
+            }
+        }));
+    }
+
+    /**
+     * Checks BinomialSampler against the exact distribution and measures its throughput
+     * for n from 10 to 10^9. The check compares the sample mean and variance with n*p and
+     * n*p*q (as z-scores) and runs a chi-square test over the bins of the effective support.
+     */
+    static void benchmarkSampler() {
+        int draws = 1_000_000;
+        int[] out = new int[draws];
+        SplittableRandom random = new SplittableRandom(2024);
+        System.out.println("\nBinomialSampler, " + draws + " draws per row");
+        System.out.println("          n |     p | method    | mean z | var z | chi2/dof |   dof | draws/sec");
+        System.out.println("------------|-------|-----------|--------|-------|----------|-------|----------");
+        for (int n = 10; n <= 1_000_000_000; n *= 10) {
+            for (double p : new double[] {1e-3, 0.3, 0.9}) {
+                BinomialSampler sampler = new BinomialSampler(n, p);
+                double millis = bestOfMillis(() -> sampler.fill(out, random), 1, 3);
+                double[] check = checkSamples(out, n, p);
+                System.out.println(String.format(Locale.ROOT, " %10d | %5s | %-9s | %6.2f | %5.2f | %8.3f | %5d | %9.3g",
+                        n, p, sampler.usesInversion() ? "inversion" : "BTPE",
+                        check[0], check[1], check[2] / check[3], (int) check[3], draws / (millis / 1000)));
+            }
+        }
+    }
+
+    /**
+     * Compares the time until a table with its CDF is ready to query: recomputing it with
+     * LOG_RECURRENCE and building the prefix sums, or mapping a file saved by DistributionFile.
+     * The mapped timings include the first query, which is what touches the file's pages.
+     */
+    static void benchmarkMappedFile() {
+        int n = 10_000_000;
+        int median = n / 2;
+        Path file;
+        try {
+            file = Files.createTempFile("binomial", ".jpsd");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            BinomialDistribution distribution = new BinomialDistribution(n, 0.5,
+                    BinomialDistribution.TableMode.LOG_RECURRENCE);
+            long start = System.nanoTime();
+            DistributionFile.write(distribution, file, true);
+            double writeMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            double[] sink = new double[1];
+            double recomputeMs = bestOfMillis(() -> {
+                BinomialDistribution fresh = new BinomialDistribution(n, 0.5,
+                        BinomialDistribution.TableMode.LOG_RECURRENCE);
+                sink[0] += fresh.cdf(median);
+            }, 1, 3);
+            double openMs = bestOfMillis(() -> sink[0] += openAndQuery(file, false, median));
+            double verifiedMs = bestOfMillis(() -> sink[0] += openAndQuery(file, true, median), 1, 3);
+
+            System.out.println("\nMapped file, n = " + n + ", with CDF, " + Files.size(file) / (1024 * 1024) + " MiB");
+            System.out.println(String.format(Locale.ROOT, "Write file            : %10.3f ms", writeMs));
+            System.out.println(String.format(Locale.ROOT, "Recompute + cdf build : %10.3f ms", recomputeMs));
+            System.out.println(String.format(Locale.ROOT, "Open mapped           : %10.3f ms", openMs));
+            System.out.println(String.format(Locale.ROOT, "Open mapped + verify  : %10.3f ms", verifiedMs));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Leaving a temp file behind is harmless
+            }
+        }
+    }
+
+    private static double openAndQuery(Path file, boolean verifyChecksum, int k) {
+        try {
+            return DistributionFile.open(file, verifyChecksum).cdf(k);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Measures rows per second when printing the table for n = 10^6 to a file: the per-row
+     * printf + DecimalFormat loop the reporter used to run, against BinomialReporter writing
+     * through a PrintStream and straight to a FileChannel. The PrintStreams are set up like
+     * System.out (small buffer, flushed on every line).
+     */
+    static void benchmarkReport() {
+        int n = 1_000_000;
+        BinomialDistribution distribution = new BinomialDistribution(n, 0.5,
+                BinomialDistribution.TableMode.LOG_RECURRENCE);
+        BinomialReporter reporter = new BinomialReporter(distribution);
+        Path file;
+        try {
+            file = Files.createTempFile("binomial", ".txt");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            System.out.println("\nReport rendering, n = " + n + " (" + (n + 1) + " rows)");
+            System.out.println(" renderer                     | time (ms) |   rows/sec | file (KiB)");
+            System.out.println("------------------------------|-----------|------------|-----------");
+            // One run of the old loop takes many seconds, so it is not repeated
+            printReportRow("per-row printf (previous)", n, file, 0, 1, () -> {
+                try (PrintStream out = systemOutLike(file)) {
+                    DecimalFormat df = new DecimalFormat("0.000000");
+                    for (int x = 0; x <= n; x++) {
+                        out.printf(" %-15d | %s%n", x, df.format(distribution.getProbability(x)));
+                    }
+                }
+            });
+            printReportRow("TEXT via PrintStream", n, file, 1, 3, () -> {
+                try (PrintStream out = systemOutLike(file)) {
+                    reporter.writeDistributionTable(out, ReportFormat.TEXT);
+                }
+            });
+            for (ReportFormat format : ReportFormat.values()) {
+                printReportRow(format + " via FileChannel", n, file, 1, 3, () -> {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                        reporter.writeDistributionTable(channel, format);
+                    }
+                });
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Leaving a temp file behind is harmless
+            }
+        }
+    }
+
+    private interface ReportTask {
+        void run() throws IOException;
+    }
+
+    private static void printReportRow(String name, int n, Path file, int warmupRuns, int measuredRuns,
+                                       ReportTask task) {
+        double millis = bestOfMillis(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, warmupRuns, measuredRuns);
+        try {
+            System.out.println(String.format(Locale.ROOT, " %-28s | %9.1f | %10.3g | %10d",
+                    name, millis, (n + 1) / (millis / 1000), Files.size(file) / 1024));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static PrintStream systemOutLike(Path file) throws IOException {
+        return new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 128), true);
+    }
+
+    /**
+     * Measures the cost per call and the accuracy of the three BinomialMath precisions for
+     * C(n, n/2) and P(X = 0.3n) with p = 0.3, for n = 10 ... 10^6. Errors are relative to a
+     * 40-digit reference; the coefficient column compares log C(n, k), since C itself leaves
+     * the double range past n = 1029.
+     */
+    static void benchmarkPrecision() {
+        MathContext reference = new MathContext(40);
+        double p = 0.3;
+        System.out.println("\nBinomialMath precisions (time per call, error against a 40-digit reference)");
+        System.out.println("        n | FAST C (ns) | err C      | LOG C (ns) | err log C  | EXACT C (ns)");
+        System.out.println("----------|-------------|------------|------------|------------|-------------");
+        for (int trials = 10; trials <= 1_000_000; trials *= 10) {
+            final int n = trials;
+            int k = n / 2;
+            BigInteger exact = BinomialMath.exactCoefficient(n, k);
+            double exactLog = logOf(new BigDecimal(exact));
+            double fastError = relativeError(BinomialMath.calculateCoefficient(n, k), new BigDecimal(exact));
+            double logError = Math.abs(BinomialMath.logCoefficient(n, k) - exactLog) / exactLog;
+            System.out.println(String.format(Locale.ROOT, " %8d | %11.1f | %10s | %10.1f | %10.2e | %12.1f",
+                    n, nanosPerCall(() -> sinkDouble(BinomialMath.calculateCoefficient(n, k))),
+                    formatError(fastError),
+                    nanosPerCall(() -> sinkDouble(BinomialMath.logCoefficient(n, k))), logError,
+                    nanosPerCall(() -> sinkDouble(BinomialMath.exactCoefficient(n, k).bitLength()))));
+        }
+
+        System.out.println("\n        n | FAST P (ns) | err P      | LOG P (ns) | err P      | EXACT P (ns) | err P");
+        System.out.println("----------|-------------|------------|------------|------------|--------------|-----------");
+        for (int trials = 10; trials <= 1_000_000; trials *= 10) {
+            final int n = trials;
+            int k = (int) (0.3 * n);
+            BigDecimal exact = BinomialMath.exactProbability(n, k, new BigDecimal(p), reference);
+            System.out.println(String.format(Locale.ROOT, " %8d | %11.1f | %10s | %10.1f | %10s | %12.1f | %10s",
+                    n,
+                    nanosPerCall(() -> sinkDouble(BinomialMath.calculateProbability(n, k, p))),
+                    formatError(relativeError(BinomialMath.calculateProbability(n, k, p), exact)),
+                    nanosPerCall(() -> sinkDouble(BinomialMath.logProbability(n, k, p))),
+                    formatError(relativeError(BinomialMath.calculateProbability(n, k, p,
+                            BinomialMath.Precision.LOG), exact)),
+                    nanosPerCall(() -> sinkDouble(BinomialMath.calculateProbability(n, k, p,
+                            BinomialMath.Precision.EXACT))),
+                    formatError(relativeError(BinomialMath.calculateProbability(n, k, p,
+                            BinomialMath.Precision.EXACT), exact))));
+        }
+    }
+
+    /**
+     * Times the Poisson-binomial distribution for m = 10^3 ... 10^6 trials with random p,
+     * checking the mean and variance against sum(p) and sum(p q), and against the plain
+     * O(m^2) recurrence where that is still affordable. Then sums 10^3 binomials with
+     * n = 10^4 and random p.
+     */
+    static void benchmarkSums() {
+        SplittableRandom random = new SplittableRandom(15);
+        System.out.println("\nPoisson-binomial, random p");
+        System.out.println("       m | time (ms) | E[X] rel. error | Var(X) rel. error | max |diff| vs O(m^2)");
+        System.out.println("---------|-----------|-----------------|-------------------|--------------------");
+        for (int m = 1_000; m <= 1_000_000; m *= 10) {
+            double[] p = new double[m];
+            double mean = 0;
+            double variance = 0;
+            for (int i = 0; i < m; i++) {
+                p[i] = random.nextDouble();
+                mean += p[i];
+                variance += p[i] * (1 - p[i]);
+            }
+            int runs = (m < 1_000_000) ? MEASURED_RUNS : 1;
+            double millis = bestOfMillis(() -> BinomialSums.poissonBinomial(p), runs - 1, runs);
+            DiscreteProbabilityDistribution sum = BinomialSums.poissonBinomial(p);
+            String check = "-";
+            if (m <= 10_000) {
+                double[] reference = new double[m + 1];
+                reference[0] = 1.0;
+                for (int i = 0; i < m; i++) {
+                    for (int j = i + 1; j > 0; j--) {
+                        reference[j] = reference[j] * (1 - p[i]) + reference[j - 1] * p[i];
+                    }
+                    reference[0] *= 1 - p[i];
+                }
+                double maxDiff = 0;
+                for (int k = 0; k <= m; k++) {
+                    maxDiff = Math.max(maxDiff, Math.abs(reference[k] - sum.getP(k)));
+                }
+                check = String.format(Locale.ROOT, "%.2e", maxDiff);
+            }
+            System.out.println(String.format(Locale.ROOT, " %7d | %9.3f | %15.2e | %17.2e | %s",
+                    m, millis, Math.abs(sum.getExpectedValue() / mean - 1),
+                    Math.abs(sum.getVariance() / variance - 1), check));
+        }
+
+        int terms = 1_000;
+        int[] n = new int[terms];
+        double[] p = new double[terms];
+        for (int i = 0; i < terms; i++) {
+            n[i] = 10_000;
+            p[i] = random.nextDouble();
+        }
+        double millis = bestOfMillis(() -> BinomialSums.sumOfBinomials(n, p), 1, 3);
+        System.out.println(String.format(Locale.ROOT, "\nSum of %d binomials, n = %d each: %.3f ms, support %d values",
+                terms, n[0], millis, BinomialSums.sumOfBinomials(n, p).getSize()));
+    }
+
+    /**
+     * Shows the method BinomialApproximation picks for a few tolerances, its error bound, the
+     * largest CDF error actually seen against the exact table (where one fits in memory), and
+     * the cost per query next to the cost of building that table.
+     */
+    static void benchmarkApproximation() {
+        System.out.println("\nBinomialApproximation (cdf queried at the median, the slowest point)");
+        System.out.println("          n | p     | tolerance | method       | bound    | max error | pmf (ns) |   cdf (ns) | table (ms)");
+        System.out.println("------------|-------|-----------|--------------|----------|-----------|----------|------------|-----------");
+        double[] tolerances = {1e-2, 1e-4, 1e-12};
+        for (int trials = 1_000; trials <= 1_000_000_000; trials *= 10) {
+            final int n = trials;
+            for (double p : new double[] {0.001, 0.3}) {
+                BinomialDistribution exact = null;
+                String tableMillis = "-";
+                if (n <= 10_000_000) {
+                    exact = new BinomialDistribution(n, p, BinomialDistribution.TableMode.LOG_RECURRENCE);
+                    int runs = (n < 10_000_000) ? MEASURED_RUNS : 1;
+                    tableMillis = String.format(Locale.ROOT, "%.3f", bestOfMillis(() -> new BinomialDistribution(n, p,
+                            BinomialDistribution.TableMode.LOG_RECURRENCE), runs - 1, runs));
+                }
+                for (double tolerance : tolerances) {
+                    BinomialApproximation approximation = new BinomialApproximation(n, p, tolerance);
+                    String maxError = "-";
+                    if (exact != null) {
+                        // 201 points across mean +- 6 standard deviations
+                        double mean = n * p;
+                        double sd = Math.sqrt(n * p * (1 - p));
+                        double error = 0;
+                        for (int i = -100; i <= 100; i++) {
+                            int k = (int) Math.round(mean + i * 0.06 * sd);
+                            error = Math.max(error, Math.abs(approximation.cdf(k) - exact.cdf(k)));
+                        }
+                        maxError = String.format(Locale.ROOT, "%.2e", error);
+                    }
+                    int median = (int) (n * p);
+                    System.out.println(String.format(Locale.ROOT,
+                            " %10d | %5s | %9.0e | %-12s | %8.2e | %9s | %8.1f | %10.1f | %10s",
+                            n, p, tolerance, approximation.getMethod(), approximation.getErrorBound(), maxError,
+                            nanosPerCall(() -> sinkDouble(approximation.probability(median))),
+                            nanosPerCall(() -> sinkDouble(approximation.cdf(median))), tableMillis));
+                }
+            }
+        }
+    }
+
+    private static double mathSink;
+
+    private static void sinkDouble(double value) {
+        mathSink += value;
+    }
+
+    /**
+     * Repeats the call until at least 50 ms have passed (after a warm-up of the same length)
+     * and returns the average time per call.
+     */
+    private static double nanosPerCall(Runnable call) {
+        double result = 0;
+        for (int round = 0; round < 2; round++) {
+            long calls = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                call.run();
+                calls++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < 50_000_000L);
+            result = (double) elapsed / calls;
+        }
+        return result;
+    }
+
+    private static double relativeError(double value, BigDecimal exact) {
+        if (!Double.isFinite(value)) {
+            return value; // Overflow (Infinity) or NaN, shown as such
+        }
+        return new BigDecimal(value).subtract(exact).abs()
+                .divide(exact, MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static String formatError(double error) {
+        return Double.isFinite(error) ? String.format(Locale.ROOT, "%.2e", error)
+                : Double.isNaN(error) ? "NaN" : "overflow";
+    }
+
+    /**
+     * @return The natural log of a positive BigDecimal of any magnitude.
+     */
+    private static double logOf(BigDecimal value) {
+        int exponent = value.precision() - value.scale() - 1; // value = m * 10^exponent, 1 <= m < 10
+        return Math.log(value.movePointLeft(exponent).doubleValue()) + exponent * Math.log(10);
+    }
+
+    /**
+     * @return {mean z-score, variance z-score, chi-square statistic, degrees of freedom}.
+     */
+    private static double[] checkSamples(int[] samples, int n, double p) {
+        double mean = (double) n * p;
+        double variance = mean * (1 - p);
+        double sum = 0;
+        double sumSq = 0;
+        for (int x : samples) {
+            double d = x - mean;
+            sum += d;
+            sumSq += d * d;
+        }
+        int count = samples.length;
+        double sampleMean = mean + sum / count;
+        double sampleVariance = (sumSq - sum * sum / count) / (count - 1);
+        double meanZ = (sampleMean - mean) / Math.sqrt(variance / count);
+        // Var of the sample variance is about (mu4 - sigma^4) / count, mu4 = 3 sigma^4 + sigma^2 (1 - 6pq)
+        double mu4 = 3 * variance * variance + variance * (1 - 6 * p * (1 - p));
+        double varianceZ = (sampleVariance - variance) / Math.sqrt((mu4 - variance * variance) / count);
+
+        // Chi-square over the effective support, bins with an expected count below 5 are pooled
+        TruncatedBinomialDistribution exact = new TruncatedBinomialDistribution(n, p, 1e-12);
+        int low = exact.getLowerBound();
+        long[] observed = new long[exact.getWindowSize()];
+        long outside = 0;
+        for (int x : samples) {
+            int i = x - low;
+            if (i >= 0 && i < observed.length) {
+                observed[i]++;
+            } else {
+                outside++;
+            }
+        }
+        double chi2 = 0;
+        int bins = 0;
+        double pooledExpected = exact.getDiscardedMass() * count;
+        long pooledObserved = outside;
+        for (int i = 0; i < observed.length; i++) {
+            double expected = exact.getProbability(low + i) * count;
+            if (expected < 5) {
+                pooledExpected += expected;
+                pooledObserved += observed[i];
+            } else {
+                chi2 += (observed[i] - expected) * (observed[i] - expected) / expected;
+                bins++;
+            }
+        }
+        if (pooledExpected > 0) {
+            chi2 += (pooledObserved - pooledExpected) * (pooledObserved - pooledExpected) / pooledExpected;
+            bins++;
+        }
+        return new double[] {meanZ, varianceZ, chi2, Math.max(bins - 1, 1)};
+    }
+
+    private static void printPerQuery(String name, int queries, double millis) {
+        System.out.println(String.format(Locale.ROOT, "%-17s: %10.1f ns/query", name, millis * 1_000_000 / queries));
+    }
+
+    /**
+     * Runs the task a few times to warm up, then returns the fastest of the measured runs.
+     */
+    static double bestOfMillis(Runnable task) {
+        return bestOfMillis(task, WARMUP_RUNS, MEASURED_RUNS);
+    }
+
+    static double bestOfMillis(Runnable task, int warmupRuns, int measuredRuns) {
+        for (int i = 0; i < warmupRuns; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < measuredRuns; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+}
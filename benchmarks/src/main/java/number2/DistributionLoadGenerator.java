@@ -0,0 +1,143 @@
+package number2;
+
+import common.LogLinearHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for {@link DistributionServer} on localhost.
+ * Run with: gradle :benchmarks:runDistributionLoadGenerator -PloadArgs='[port] [connections] [seconds] [pipeline]'
+ * Without a port (or with 0) it starts a server in the same JVM first.
+ *
+ * Every connection runs on a virtual thread and sends its requests in bursts of `pipeline` lines,
+ * then reads the responses. A request's latency runs from the moment its burst was written
+ * to the moment its response line arrived. The mix queries a few cached binomial tables
+ * (n = 100 to 1,000,000) and a small discrete table, like a client repeatedly asking about
+ * the same handful of distributions.
+ */
+public class DistributionLoadGenerator {
+
+    private static final String DISCRETE = "0:0.1,1:0.2,2:0.4,3:0.2,4:0.1";
+
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+        int connectionCount = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        int pipeline = (args.length > 3) ? Integer.parseInt(args[3]) : 8;
+
+        DistributionServer server = (port == 0) ? DistributionServer.start(0) : null;
+        if (server != null) {
+            port = server.getPort();
+        }
+        try {
+            // A short warm-up so the JIT and the table cache settle before measuring
+            run(port, connectionCount, Math.max(1, seconds / 5), pipeline, new LogLinearHistogram(), new LongAdder());
+            LogLinearHistogram latencies = new LogLinearHistogram();
+            LongAdder errors = new LongAdder();
+            long start = System.nanoTime();
+            run(port, connectionCount, seconds, pipeline, latencies, errors);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            LogLinearHistogram.Snapshot snapshot = latencies.snapshot();
+
+            System.out.println("DistributionServer load, 127.0.0.1:" + port + ", " + connectionCount
+                    + " connections, pipeline depth " + pipeline + ", " + seconds + " s");
+            System.out.println(String.format(Locale.ROOT, "requests: %d (%d errors), throughput: %.0f requests/s",
+                    snapshot.getCount(), errors.sum(), snapshot.getCount() / elapsedSeconds));
+            System.out.println(String.format(Locale.ROOT,
+                    "latency (us): mean %.1f | p50 %.1f | p99 %.1f | p99.9 %.1f | max %.1f",
+                    snapshot.getMean() / 1e3, snapshot.getValueAtQuantile(0.5) / 1e3,
+                    snapshot.getValueAtQuantile(0.99) / 1e3, snapshot.getValueAtQuantile(0.999) / 1e3,
+                    snapshot.getMax() / 1e3));
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Runs every connection for the given time and waits for them to finish.
+     */
+    private static void run(int port, int connectionCount, int seconds, int pipeline,
+                            LogLinearHistogram latencies, LongAdder errors) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < connectionCount; c++) {
+            final long seed = c;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    connection(port, pipeline, deadline, new SplittableRandom(seed), latencies, errors);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void connection(int port, int pipeline, long deadline, SplittableRandom random,
+                                   LogLinearHistogram latencies, LongAdder errors) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            StringBuilder burst = new StringBuilder();
+            while (System.nanoTime() < deadline) {
+                burst.setLength(0);
+                for (int i = 0; i < pipeline; i++) {
+                    burst.append(nextRequest(random)).append('\n');
+                }
+                long sent = System.nanoTime();
+                out.write(burst.toString().getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                for (int i = 0; i < pipeline; i++) {
+                    String response = in.readLine();
+                    if (response == null) {
+                        throw new IOException("The server closed the connection.");
+                    }
+                    latencies.recordSince(sent);
+                    if (!response.startsWith("OK")) {
+                        errors.increment();
+                    }
+                }
+            }
+            out.write("QUIT\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+
+    private static String nextRequest(SplittableRandom random) {
+        int n = new int[] {100, 10_000, 1_000_000}[random.nextInt(3)];
+        double p = new double[] {0.1, 0.5}[random.nextInt(2)];
+        int k = (int) (n * p) + random.nextInt(-3, 4);
+        switch (random.nextInt(6)) {
+            case 0:
+                return "PMF binomial " + n + " " + p + " " + k;
+            case 1:
+                return "CDF binomial " + n + " " + p + " " + k;
+            case 2:
+                return "QUANTILE binomial " + n + " " + p + " " + random.nextDouble();
+            case 3:
+                return "MOMENTS binomial " + n + " " + p;
+            case 4:
+                return "CDF discrete " + DISCRETE + " " + random.nextInt(5);
+            default:
+                return "QUANTILE discrete " + DISCRETE + " " + random.nextDouble();
+        }
+    }
+}
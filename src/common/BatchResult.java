@@ -0,0 +1,111 @@
+package common;
+
+/**
+ * Columnar results of a DistributionBatch evaluation: one primitive array per statistic,
+ * indexed like the input tables, instead of one result object per table.
+ * For invalid tables the statistics are NaN and getError(i) explains why.
+ */
+public final class BatchResult {
+
+    private final boolean[] valid;
+    private final double[] expectedValues;
+    private final double[] variances;
+    private final double[] standardDeviations;
+    private final double[] skewnesses;
+    private final double[] excessKurtoses;
+    private final double[] entropies;
+    private final String[] errors; // null for valid tables
+
+    BatchResult(int size) {
+        this.valid = new boolean[size];
+        this.expectedValues = new double[size];
+        this.variances = new double[size];
+        this.standardDeviations = new double[size];
+        this.skewnesses = new double[size];
+        this.excessKurtoses = new double[size];
+        this.entropies = new double[size];
+        this.errors = new String[size];
+    }
+
+    /**
+     * Stores the statistics of table i. Each table is written by exactly one task.
+     */
+    void set(int i, Moments moments) {
+        valid[i] = true;
+        expectedValues[i] = moments.getMean();
+        variances[i] = moments.getVariance();
+        standardDeviations[i] = moments.getStandardDeviation();
+        skewnesses[i] = moments.getSkewness();
+        excessKurtoses[i] = moments.getExcessKurtosis();
+        entropies[i] = moments.getEntropy();
+    }
+
+    /**
+     * Marks table i as invalid.
+     */
+    void setInvalid(int i, String error) {
+        valid[i] = false;
+        expectedValues[i] = Double.NaN;
+        variances[i] = Double.NaN;
+        standardDeviations[i] = Double.NaN;
+        skewnesses[i] = Double.NaN;
+        excessKurtoses[i] = Double.NaN;
+        entropies[i] = Double.NaN;
+        errors[i] = error;
+    }
+
+    /**
+     * @return The number of tables evaluated.
+     */
+    public int size() {
+        return valid.length;
+    }
+
+    public boolean isValid(int i) {
+        return valid[i];
+    }
+
+    public double getExpectedValue(int i) {
+        return expectedValues[i];
+    }
+
+    public double getVariance(int i) {
+        return variances[i];
+    }
+
+    public double getStandardDeviation(int i) {
+        return standardDeviations[i];
+    }
+
+    public double getSkewness(int i) {
+        return skewnesses[i];
+    }
+
+    public double getExcessKurtosis(int i) {
+        return excessKurtoses[i];
+    }
+
+    public double getEntropy(int i) {
+        return entropies[i];
+    }
+
+    /**
+     * @return Why table i failed validation, or null if it is valid.
+     */
+    public String getError(int i) {
+        return errors[i];
+    }
+
+    /**
+     * @return The number of tables that passed validation.
+     */
+    public int getValidCount() {
+        int count = 0;
+        for (boolean v : valid) {
+            if (v) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
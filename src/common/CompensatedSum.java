@@ -0,0 +1,90 @@
+package common;
+
+/**
+ * Neumaier compensated summation: a running sum plus a correction term that collects the
+ * low-order bits each addition rounds away, so long sums of probabilities don't drift.
+ * The error stays near one rounding of the result, however many terms are added and
+ * whatever their order of magnitude.
+ *
+ * Use an instance to add values one at a time, or the static helpers for whole arrays.
+ * Every helper runs the same {@link #add(double)} step, so all of them round identically.
+ */
+public final class CompensatedSum {
+
+    private double sum; // Plain running sum
+    private double compensation; // The low-order bits lost by the additions so far
+
+    /**
+     * Adds one value.
+     *
+     * @param value The value to add.
+     */
+    public void add(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        } else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * @return The compensated sum of the values added so far.
+     */
+    public double get() {
+        return sum + compensation;
+    }
+
+    // --- Whole arrays ---
+
+    /**
+     * @param values The values to sum.
+     * @return The compensated sum of all values.
+     */
+    public static double of(double[] values) {
+        return of(values, 0, values.length);
+    }
+
+    /**
+     * @param values The values to sum.
+     * @param from First index summed (inclusive).
+     * @param to Last index summed (exclusive).
+     * @return The compensated sum of values[from], ..., values[to - 1].
+     */
+    public static double of(double[] values, int from, int to) {
+        CompensatedSum sum = new CompensatedSum();
+        for (int i = from; i < to; i++) {
+            sum.add(values[i]);
+        }
+        return sum.get();
+    }
+
+    /**
+     * @param values The values to sum.
+     * @return A new array with prefix[i] = values[0] + ... + values[i].
+     */
+    public static double[] prefixSums(double[] values) {
+        double[] prefix = new double[values.length];
+        CompensatedSum sum = new CompensatedSum();
+        for (int i = 0; i < values.length; i++) {
+            sum.add(values[i]);
+            prefix[i] = sum.get();
+        }
+        return prefix;
+    }
+
+    /**
+     * @param values The values to sum.
+     * @return A new array with suffix[i] = values[i] + ... + values[length - 1].
+     */
+    public static double[] suffixSums(double[] values) {
+        double[] suffix = new double[values.length];
+        CompensatedSum sum = new CompensatedSum();
+        for (int i = values.length - 1; i >= 0; i--) {
+            sum.add(values[i]);
+            suffix[i] = sum.get();
+        }
+        return suffix;
+    }
+}
@@ -0,0 +1,389 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Utility class for the distribution of a sum of independent random variables on the
+ * integers, X1 + ... + Xm, by convolving their probability tables.
+ *
+ * Tables are dense: index i holds P(X = offset + i). Short tables are convolved directly in
+ * O(n*m); once that would cost more than a fast Fourier transform the FFT path is used,
+ * O(L log L) for L = n + m - 1. The FFT result carries an absolute rounding error of about
+ * 1e-16 * log2(L) on every entry, so tail probabilities below that level are noise; negative
+ * noise is clamped to 0 and distributions are renormalised to sum to 1.
+ */
+public final class Convolution {
+
+    // Direct costs about n*m multiply-adds, the FFT about L log2(L) butterflies (each several
+    // times slower). Measured with ConvolutionBenchmark.
+    private static final double FFT_COST_FACTOR = 12.0;
+
+    // Private constructor to prevent instantiation of utility class
+    private Convolution() {}
+
+    // --- Distributions ---
+
+    /**
+     * Calculates the distribution of X + Y for independent X and Y.
+     * The result lists every integer between the smallest and the largest possible sum.
+     *
+     * @param a Distribution of X, integer x values only.
+     * @param b Distribution of Y, integer x values only.
+     * @return The distribution of X + Y.
+     * @throws IllegalArgumentException if an x value is not an integer or the sum's range is too wide.
+     */
+    public static DiscreteProbabilityDistribution convolve(DiscreteProbabilityDistribution a,
+                                                           DiscreteProbabilityDistribution b) {
+        return sum(List.of(a, b));
+    }
+
+    /**
+     * Calculates the distribution of X1 + ... + Xm for independent Xi. Tables are combined
+     * smallest first, which keeps every intermediate table as short as possible.
+     *
+     * @param distributions The distributions of the Xi (at least one), integer x values only.
+     * @return The distribution of the sum.
+     * @throws IllegalArgumentException if the list is empty, an x value is not an integer, the
+     *                                  sum's range is too wide or its smallest value overflows a long.
+     */
+    public static DiscreteProbabilityDistribution sum(List<DiscreteProbabilityDistribution> distributions) {
+        if (distributions == null || distributions.isEmpty()) {
+            throw new IllegalArgumentException("At least one distribution is needed.");
+        }
+        List<double[]> tables = new ArrayList<>(distributions.size());
+        long offset = 0;
+        for (DiscreteProbabilityDistribution distribution : distributions) {
+            long[] min = new long[1];
+            tables.add(toDense(distribution, min));
+            try {
+                offset = Math.addExact(offset, min[0]);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("The smallest possible sum overflows a long.");
+            }
+        }
+        return fromDense(convolveAll(tables), offset);
+    }
+
+    /**
+     * Calculates the distribution of X1 + ... + Xm for m independent copies of X, by
+     * exponentiation by squaring: O(log m) convolutions instead of m - 1.
+     *
+     * @param distribution The distribution of X, integer x values only.
+     * @param m The number of copies (non-negative; m = 0 gives the point mass at 0).
+     * @return The distribution of the m-fold sum.
+     * @throws IllegalArgumentException if m < 0, an x value is not an integer, the sum's range
+     *                                  is too wide or its smallest value overflows a long.
+     */
+    public static DiscreteProbabilityDistribution power(DiscreteProbabilityDistribution distribution, int m) {
+        long[] min = new long[1];
+        double[] table = power(toDense(distribution, min), m);
+        long offset;
+        try {
+            offset = Math.multiplyExact(min[0], (long) m);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The smallest possible sum, " + min[0] + " * " + m
+                    + ", overflows a long.");
+        }
+        return fromDense(table, offset);
+    }
+
+    /**
+     * Turns a dense table into a distribution over offset, offset + 1, ...,
+     * renormalising it so that it sums to 1.
+     *
+     * @param probabilities Non-negative weights, index i for the value offset + i.
+     * @param offset The value of index 0.
+     * @return The distribution.
+     * @throws IllegalArgumentException if the weights do not have a positive, finite sum.
+     */
+    public static DiscreteProbabilityDistribution fromDense(double[] probabilities, long offset) {
+        double total = CompensatedSum.of(probabilities);
+        if (!(total > 0.0 && total < Double.POSITIVE_INFINITY)) {
+            throw new IllegalArgumentException("Probabilities must have a positive, finite sum. Found: " + total);
+        }
+        double[] x = new double[probabilities.length];
+        double[] p = new double[probabilities.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            x[i] = offset + i;
+            p[i] = probabilities[i] / total;
+        }
+        return new DiscreteProbabilityDistribution(x, p);
+    }
+
+    /**
+     * Lays the distribution out as a dense table from its smallest to its largest x value.
+     *
+     * @param min Output, receives the smallest x value.
+     */
+    private static double[] toDense(DiscreteProbabilityDistribution distribution, long[] min) {
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < distribution.getSize(); i++) {
+            double x = distribution.getX(i);
+            if (x != Math.rint(x) || Math.abs(x) > 1L << 52) {
+                throw new IllegalArgumentException("Convolution needs integer x values. Found: " + x);
+            }
+            low = Math.min(low, x);
+            high = Math.max(high, x);
+        }
+        checkLength(high - low + 1);
+        double[] table = new double[(int) (high - low) + 1];
+        for (int i = 0; i < distribution.getSize(); i++) {
+            table[(int) (distribution.getX(i) - low)] += distribution.getP(i); // Repeated x values add up
+        }
+        min[0] = (long) low;
+        return table;
+    }
+
+    // --- Dense tables ---
+
+    /**
+     * Convolves two dense tables: c[k] = sum over i + j = k of a[i] * b[j].
+     * Chooses the direct or the FFT method, whichever is expected to be faster.
+     *
+     * @param a First table.
+     * @param b Second table.
+     * @return The convolution, of length a.length + b.length - 1, with no negative entries.
+     * @throws IllegalArgumentException if a table is empty or the result would be too long.
+     */
+    public static double[] convolve(double[] a, double[] b) {
+        if (a.length == 0 || b.length == 0) {
+            throw new IllegalArgumentException("Input arrays cannot be empty.");
+        }
+        checkLength((double) a.length + b.length - 1);
+        return prefersDirect(a.length, b.length) ? convolveDirect(a, b) : convolveFft(a, b);
+    }
+
+    /**
+     * @return Whether direct convolution of tables of these lengths is expected to beat the FFT.
+     */
+    static boolean prefersDirect(int aLength, int bLength) {
+        int fftSize = fftSize(aLength + bLength - 1);
+        double directCost = (double) aLength * bLength;
+        double fftCost = FFT_COST_FACTOR * fftSize * Integer.numberOfTrailingZeros(fftSize);
+        return directCost <= fftCost;
+    }
+
+    /**
+     * Convolves many tables, always combining the two shortest next (like building a Huffman
+     * tree), so the long tables are only touched by the last few convolutions.
+     *
+     * @param tables The tables (at least one).
+     * @return Their convolution.
+     * @throws IllegalArgumentException if the list or a table is empty.
+     */
+    public static double[] convolveAll(List<double[]> tables) {
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("At least one table is needed.");
+        }
+        PriorityQueue<double[]> queue = new PriorityQueue<>(tables.size(), Comparator.comparingInt(t -> t.length));
+        queue.addAll(tables);
+        while (queue.size() > 1) {
+            queue.add(convolve(queue.poll(), queue.poll()));
+        }
+        return queue.poll();
+    }
+
+    /**
+     * Convolves a table with itself m - 1 times, by exponentiation by squaring.
+     * Intermediate tables are renormalised to the input's total, which stops FFT rounding
+     * from compounding across the O(log m) steps.
+     *
+     * @param table The table.
+     * @param m The number of copies (non-negative, m = 0 gives {1}).
+     * @return The m-fold convolution.
+     * @throws IllegalArgumentException if m < 0, the table is empty or the result would be too long.
+     */
+    public static double[] power(double[] table, int m) {
+        if (m < 0) {
+            throw new IllegalArgumentException("Number of copies (m) cannot be negative.");
+        }
+        if (table.length == 0) {
+            throw new IllegalArgumentException("Input arrays cannot be empty.");
+        }
+        checkLength((double) m * (table.length - 1) + 1);
+        double total = CompensatedSum.of(table);
+        double[] result = {1.0};
+        double resultTotal = 1.0;
+        double[] base = table;
+        double baseTotal = total;
+        while (m > 0) {
+            if ((m & 1) != 0) {
+                resultTotal *= baseTotal;
+                result = rescale(convolve(result, base), resultTotal);
+            }
+            m >>>= 1;
+            if (m > 0) {
+                baseTotal *= baseTotal;
+                base = rescale(convolve(base, base), baseTotal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Direct convolution, O(a.length * b.length). Exact apart from the rounding of each sum,
+     * so tiny tail probabilities keep their relative accuracy.
+     */
+    static double[] convolveDirect(double[] a, double[] b) {
+        if (a.length > b.length) {
+            double[] t = a;
+            a = b;
+            b = t;
+        }
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            double ai = a[i];
+            if (ai == 0.0) {
+                continue;
+            }
+            // The inner loop runs over the longer table, a straight multiply-add the JIT vectorises
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += ai * b[j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * FFT convolution, O(L log L). Both real inputs travel in one complex transform
+     * (a as the real part, b as the imaginary part) and are separated again using the
+     * symmetry of real transforms, so the whole convolution costs two transforms of size L.
+     */
+    static double[] convolveFft(double[] a, double[] b) {
+        int length = a.length + b.length - 1;
+        int size = fftSize(length);
+        double[] re = Arrays.copyOf(a, size);
+        double[] im = Arrays.copyOf(b, size);
+        Twiddles twiddles = new Twiddles(size);
+        transform(re, im, twiddles, false);
+
+        // With Z = FFT(a + ib): A[k] = (Z[k] + conj Z[-k]) / 2, B[k] = (Z[k] - conj Z[-k]) / 2i.
+        // The product C = A * B is the transform of a real sequence, so C[-k] = conj C[k].
+        for (int k = 0; k <= size / 2; k++) {
+            int j = (size - k) & (size - 1);
+            double aRe = (re[k] + re[j]) * 0.5;
+            double aIm = (im[k] - im[j]) * 0.5;
+            double bRe = (im[k] + im[j]) * 0.5;
+            double bIm = (re[j] - re[k]) * 0.5;
+            double cRe = aRe * bRe - aIm * bIm;
+            double cIm = aRe * bIm + aIm * bRe;
+            re[k] = cRe;
+            im[k] = cIm;
+            re[j] = cRe;
+            im[j] = -cIm;
+        }
+        transform(re, im, twiddles, true);
+
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            double v = re[i] / size;
+            result[i] = (v > 0.0) ? v : 0.0; // Rounding noise can dip just below zero
+        }
+        return result;
+    }
+
+    /**
+     * cos and sin of 2 pi k / size for k < size / 2, from a quarter-period cosine table.
+     */
+    private static final class Twiddles {
+        final double[] cos;
+        final double[] sin;
+
+        Twiddles(int size) {
+            int quarter = size / 4;
+            double[] quarterCos = new double[quarter + 1];
+            for (int k = 0; k <= quarter; k++) {
+                // Past 45 degrees, sin of the complement is the more accurate way to get the cosine
+                quarterCos[k] = (2 * k <= quarter)
+                        ? Math.cos(2 * Math.PI * k / size)
+                        : Math.sin(2 * Math.PI * (quarter - k) / size);
+            }
+            cos = new double[size / 2];
+            sin = new double[size / 2];
+            for (int k = 0; k < size / 2; k++) {
+                if (k <= quarter) {
+                    cos[k] = quarterCos[k];
+                    sin[k] = quarterCos[quarter - k];
+                } else {
+                    cos[k] = -quarterCos[size / 2 - k];
+                    sin[k] = quarterCos[k - quarter];
+                }
+            }
+        }
+    }
+
+    /**
+     * In-place iterative radix-2 FFT (unnormalised), forward with exp(-2 pi i k / size),
+     * inverse with exp(+2 pi i k / size).
+     */
+    private static void transform(double[] re, double[] im, Twiddles twiddles, boolean inverse) {
+        int size = re.length;
+        // Bit-reversal permutation
+        for (int i = 1, j = 0; i < size; i++) {
+            int bit = size >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        double sign = inverse ? 1.0 : -1.0;
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int step = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wRe = twiddles.cos[k * step];
+                    double wIm = sign * twiddles.sin[k * step];
+                    int u = start + k;
+                    int v = u + half;
+                    double xRe = re[v] * wRe - im[v] * wIm;
+                    double xIm = re[v] * wIm + im[v] * wRe;
+                    re[v] = re[u] - xRe;
+                    im[v] = im[u] - xIm;
+                    re[u] += xRe;
+                    im[u] += xIm;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The smallest power of two >= length, at least 4.
+     */
+    private static int fftSize(int length) {
+        return Math.max(4, Integer.highestOneBit(length - 1) << 1);
+    }
+
+    private static int checkLength(double length) {
+        // The FFT pads to the next power of two, which has to fit in an array too
+        if (length > 1 << 29) {
+            throw new IllegalArgumentException("Support of the sum is too wide: " + (long) length + " values.");
+        }
+        return (int) length;
+    }
+
+    private static double[] rescale(double[] table, double total) {
+        double current = CompensatedSum.of(table);
+        if (!(current > 0.0)) {
+            return table; // Nothing to rescale, an all-zero table stays that way
+        }
+        double factor = total / current;
+        for (int i = 0; i < table.length; i++) {
+            table[i] *= factor;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,110 @@
+package common;
+
+/**
+ * Prefix and suffix sums over a table of probabilities, used to answer cumulative
+ * queries (CDF, survival, range, quantile) without summing the table again.
+ * Both directions are kept so that small tail probabilities are read directly
+ * instead of being computed as 1 minus a number close to 1.
+ * The sums use {@link CompensatedSum}, so long tables don't drift.
+ */
+public final class CumulativeSums {
+
+    private final double[] prefix; // prefix[i] = p[0] + ... + p[i]
+    private final double[] suffix; // suffix[i] = p[i] + ... + p[size-1]
+    private final int lastPositive; // Last index with p > 0, or -1 if there is none
+
+    /**
+     * Builds the cumulative sums. The probabilities array is only read, not kept.
+     *
+     * @param probabilities The probability of each index, in table order.
+     * @throws IllegalArgumentException if probabilities is null or empty.
+     */
+    public CumulativeSums(double[] probabilities) {
+        if (probabilities == null || probabilities.length == 0) {
+            throw new IllegalArgumentException("Probabilities cannot be null or empty.");
+        }
+        int size = probabilities.length;
+        this.prefix = CompensatedSum.prefixSums(probabilities);
+        this.suffix = CompensatedSum.suffixSums(probabilities);
+        int last = size - 1;
+        while (last >= 0 && !(probabilities[last] > 0)) {
+            last--;
+        }
+        this.lastPositive = last;
+    }
+
+    /**
+     * @return The number of entries in the table.
+     */
+    public int getSize() {
+        return prefix.length;
+    }
+
+    /**
+     * @return The sum of all probabilities at index <= i (0 if i < 0, the total if i is past the end).
+     */
+    public double cumulativeAt(int i) {
+        if (i < 0) {
+            return 0.0;
+        }
+        return prefix[Math.min(i, prefix.length - 1)];
+    }
+
+    /**
+     * @return The sum of all probabilities at index > i (the total if i < 0, 0 if i is at or past the end).
+     */
+    public double survivalAt(int i) {
+        if (i >= suffix.length - 1) {
+            return 0.0;
+        }
+        return suffix[Math.max(i + 1, 0)];
+    }
+
+    /**
+     * Returns the sum of the probabilities at indexes from..to (inclusive), clamped to the table.
+     * Reads from whichever side keeps the result accurate when it is small.
+     *
+     * @return The range sum, or 0 if the range is empty.
+     */
+    public double rangeSum(int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, prefix.length - 1);
+        if (from > to) {
+            return 0.0;
+        }
+        double viaPrefix = prefix[to] - (from > 0 ? prefix[from - 1] : 0.0);
+        double viaSuffix = suffix[from] - (to < suffix.length - 1 ? suffix[to + 1] : 0.0);
+        // The rounding error follows the larger operand, so subtract on the side where it is smaller
+        double sum = (prefix[to] <= suffix[from]) ? viaPrefix : viaSuffix;
+        return Math.max(sum, 0.0);
+    }
+
+    /**
+     * Finds the smallest index whose cumulative sum reaches u, using binary search.
+     * If rounding keeps every cumulative sum just below u, the last index with
+     * positive probability is returned.
+     *
+     * @param u A probability level in [0, 1].
+     * @return The quantile index.
+     * @throws IllegalArgumentException if u is outside [0, 1].
+     */
+    public int quantileIndex(double u) {
+        if (!(u >= 0.0 && u <= 1.0)) {
+            throw new IllegalArgumentException("Quantile level must be between 0 and 1. Found: " + u);
+        }
+        int low = 0;
+        int high = prefix.length - 1;
+        if (prefix[high] < u) {
+            return Math.max(lastPositive, 0);
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prefix[mid] >= u) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
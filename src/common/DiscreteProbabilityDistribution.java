@@ -0,0 +1,357 @@
+package common;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DiscreteProbabilityDistribution {
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram CONSTRUCT_NANOS = Metrics.histogram("discrete.construct.nanos");
+    private static final LogLinearHistogram VALIDATE_NANOS = Metrics.histogram("discrete.validate.nanos");
+    private static final LogLinearHistogram CUMULATIVE_NANOS = Metrics.histogram("discrete.cumulative.nanos");
+    private static final LogLinearHistogram SIZES = Metrics.histogram("discrete.size.entries");
+    private static final LongAdder REJECTED = Metrics.counter("discrete.rejected");
+
+    private final double[] xValues;
+    private final double[] pValues;
+    private final Moments moments; // Computed by the same pass that validates the input
+    private final boolean isValid; // Final, like every other field, so sharing an instance between threads is safe
+    private volatile SortedCumulative cumulative; // Built once, on the first cumulative query
+    private final Object cumulativeLock = new Object();
+
+    /**
+     * Constructor for DiscreteProbabilityDistribution.
+     * Validates the input data.
+     *
+     * @param xValues Array of possible values for the random variable X.
+     * @param pValues Array of corresponding probabilities P(X=x). Must sum to 1.
+     * @throws IllegalArgumentException if input arrays are null, have different lengths,
+     *                                  or if probabilities don't sum close to 1.
+     */
+    public DiscreteProbabilityDistribution(double[] xValues, double[] pValues) {
+        this(xValues, pValues, false);
+    }
+
+    /**
+     * Constructor for DiscreteProbabilityDistribution that can also prepare the cumulative
+     * queries up front. The moments are always computed here; with precomputeCumulative the
+     * sorted prefix sums are too, so an instance handed to many threads never makes the
+     * first cdf/quantile caller wait for them.
+     *
+     * @param xValues Array of possible values for the random variable X.
+     * @param pValues Array of corresponding probabilities P(X=x). Must sum to 1.
+     * @param precomputeCumulative Whether to build the cumulative sums now instead of on the first query.
+     * @throws IllegalArgumentException if input arrays are null, have different lengths,
+     *                                  or if probabilities don't sum close to 1.
+     */
+    public DiscreteProbabilityDistribution(double[] xValues, double[] pValues, boolean precomputeCumulative) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        this.moments = validateInputs(xValues, pValues);
+        if (Metrics.ENABLED) {
+            VALIDATE_NANOS.recordSince(start);
+        }
+        this.xValues = Arrays.copyOf(xValues, xValues.length); // Defensive copy
+        this.pValues = Arrays.copyOf(pValues, pValues.length); // Defensive copy
+        this.isValid = true; // Validation passed
+        if (precomputeCumulative) {
+            this.cumulative = buildCumulative(this.xValues, this.pValues);
+        }
+        if (Metrics.ENABLED) {
+            CONSTRUCT_NANOS.recordSince(start);
+            SIZES.record(xValues.length);
+        }
+    }
+
+    /**
+     * Validates the input arrays for the distribution.
+     * The per-probability checks run inside the moment computation, so validating
+     * and computing E[X], Var(X) and the higher moments take a single pass.
+     *
+     * @return The moments of the validated table.
+     */
+    private static Moments validateInputs(double[] x, double[] p) {
+        try {
+            return Moments.of(x, p); // Throws IllegalArgumentException describing the first problem found
+        } catch (IllegalArgumentException e) {
+            if (Metrics.ENABLED) {
+                REJECTED.increment();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the shape of the input arrays without throwing, so batch callers can record
+     * the problem and move on. The probabilities themselves are checked by Moments.
+     *
+     * @return A description of the problem, or null if the arrays are non-empty and of equal length.
+     */
+    static String findStructureError(double[] x, double[] p) {
+        if (x == null || p == null) {
+            return "Input arrays cannot be null.";
+        }
+        if (x.length != p.length) {
+            return "xValues and pValues arrays must have the same length.";
+        }
+        if (x.length == 0) {
+            return "Input arrays cannot be empty.";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the expected value (μ).
+     * Computed once during construction.
+     *
+     * @return The expected value E[X].
+     */
+    public double getExpectedValue() {
+        return moments.getMean();
+    }
+
+    /**
+     * Returns the variance (σ²).
+     * Computed once during construction.
+     *
+     * @return The variance Var(X).
+     */
+    public double getVariance() {
+        return moments.getVariance();
+    }
+
+    /**
+     * Returns all moments computed during construction: mean, variance, skewness,
+     * excess kurtosis and entropy.
+     *
+     * @return The moments of the distribution.
+     */
+    public Moments getMoments() {
+        return moments;
+    }
+
+    /**
+     * Calculates and returns the standard deviation (σ).
+     *
+     * @return The standard deviation (sqrt of variance).
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance()); // Ensure variance is calculated
+    }
+
+    // --- Cumulative queries ---
+
+    /**
+     * Calculates the cumulative distribution function F(x) = P(X <= x).
+     * The first cumulative query builds the prefix sums once, after that
+     * each query is a binary search over the sorted x values, O(log n).
+     *
+     * @param x The point to evaluate.
+     * @return P(X <= x).
+     */
+    public double cdf(double x) {
+        SortedCumulative c = cumulative();
+        return c.sums.cumulativeAt(c.lastIndexAtMost(x));
+    }
+
+    /**
+     * Calculates the survival function P(X > x).
+     * Small upper tails are read from suffix sums, not computed as 1 - F(x).
+     *
+     * @param x The point to evaluate.
+     * @return P(X > x).
+     */
+    public double survival(double x) {
+        SortedCumulative c = cumulative();
+        return c.sums.survivalAt(c.lastIndexAtMost(x));
+    }
+
+    /**
+     * Calculates P(a <= X <= b).
+     *
+     * @param a Lower end of the range (inclusive).
+     * @param b Upper end of the range (inclusive).
+     * @return The probability of the range, 0 if a > b.
+     */
+    public double rangeProbability(double a, double b) {
+        if (a > b) {
+            return 0.0;
+        }
+        SortedCumulative c = cumulative();
+        return c.sums.rangeSum(c.firstIndexAtLeast(a), c.lastIndexAtMost(b));
+    }
+
+    /**
+     * Calculates the quantile (inverse CDF): the smallest x with P(X <= x) >= u.
+     *
+     * @param u A probability level in [0, 1].
+     * @return The quantile x value.
+     * @throws IllegalArgumentException if u is outside [0, 1].
+     */
+    public double quantile(double u) {
+        SortedCumulative c = cumulative();
+        return c.sortedX[c.sums.quantileIndex(u)];
+    }
+
+    private SortedCumulative cumulative() {
+        SortedCumulative c = cumulative;
+        if (c == null) {
+            // Double-checked: threads arriving during the build wait for it instead of sorting again
+            synchronized (cumulativeLock) {
+                c = cumulative;
+                if (c == null) {
+                    c = buildCumulative(xValues, pValues);
+                    cumulative = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    private static SortedCumulative buildCumulative(double[] x, double[] p) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        SortedCumulative c = new SortedCumulative(x, p);
+        if (Metrics.ENABLED) {
+            CUMULATIVE_NANOS.recordSince(start);
+        }
+        return c;
+    }
+
+    /**
+     * The x values in ascending order together with the cumulative sums of their probabilities.
+     * The arrays are shared with the distribution when xValues is already sorted.
+     */
+    private static final class SortedCumulative {
+        private final double[] sortedX;
+        private final CumulativeSums sums;
+
+        SortedCumulative(double[] x, double[] p) {
+            if (isSorted(x)) {
+                this.sortedX = x;
+                this.sums = new CumulativeSums(p);
+                return;
+            }
+            Integer[] order = new Integer[x.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> Double.compare(x[i], x[j]));
+            this.sortedX = new double[x.length];
+            double[] sortedP = new double[p.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedX[i] = x[order[i]];
+                sortedP[i] = p[order[i]];
+            }
+            this.sums = new CumulativeSums(sortedP);
+        }
+
+        /**
+         * @return The last index with sortedX[index] <= x, or -1 if every value is larger.
+         */
+        int lastIndexAtMost(double x) {
+            int low = 0;
+            int high = sortedX.length; // Search for the first index with sortedX > x
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedX[mid] <= x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low - 1;
+        }
+
+        /**
+         * @return The first index with sortedX[index] >= x, or the length if every value is smaller.
+         */
+        int firstIndexAtLeast(double x) {
+            int low = 0;
+            int high = sortedX.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedX[mid] < x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static boolean isSorted(double[] x) {
+            for (int i = 1; i < x.length; i++) {
+                if (!(x[i - 1] <= x[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // --- Getters for accessing internal data (needed by the reporter) ---
+
+    public double[] getXValues() {
+        return Arrays.copyOf(xValues, xValues.length); // Return a copy
+    }
+
+    public double[] getPValues() {
+        return Arrays.copyOf(pValues, pValues.length); // Return a copy
+    }
+
+    // --- Read-only access without copying ---
+
+    /**
+     * @param i Index into the table (0 <= i < getSize()).
+     * @return The i-th value x of the random variable.
+     */
+    public double getX(int i) {
+        return xValues[i];
+    }
+
+    /**
+     * @param i Index into the table (0 <= i < getSize()).
+     * @return The probability P(X = getX(i)).
+     */
+    public double getP(int i) {
+        return pValues[i];
+    }
+
+    /**
+     * Returns a read-only view of the x values. The view shares the internal array,
+     * only the small buffer object is new (it carries its own position and limit).
+     *
+     * @return A read-only DoubleBuffer over the x values.
+     */
+    public DoubleBuffer getXBuffer() {
+        return DoubleBuffer.wrap(xValues).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the probabilities, sharing the internal array.
+     *
+     * @return A read-only DoubleBuffer over the probabilities.
+     */
+    public DoubleBuffer getPBuffer() {
+        return DoubleBuffer.wrap(pValues).asReadOnlyBuffer();
+    }
+
+    /**
+     * Visits every probability in table order. The matching x value is available via getX(index).
+     *
+     * @param action Receives (index, P(X = getX(index))) for each entry.
+     */
+    public void forEach(IndexedDoubleConsumer action) {
+        for (int i = 0; i < pValues.length; i++) {
+            action.accept(i, pValues[i]);
+        }
+    }
+
+    public int getSize() {
+        return xValues.length;
+    }
+
+    public boolean isValid() {
+        return isValid;
+    }
+
+}
@@ -0,0 +1,185 @@
+package common;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Validates many (xValues, pValues) tables and computes E[X], Var(X), σ and the higher moments of each
+ * in parallel, without creating a DiscreteProbabilityDistribution per table.
+ * Validation and the statistics are exactly those of DiscreteProbabilityDistribution.
+ *
+ * Work is split with fork-join by the number of table entries rather than the number of
+ * tables, so a batch of a few huge tables spreads as well as one of many small ones.
+ */
+public final class DistributionBatch {
+
+    /** Roughly how many table entries one task processes before it stops splitting. */
+    static final long ENTRIES_PER_TASK = 1 << 16;
+
+    // Private constructor to prevent instantiation of utility class
+    private DistributionBatch() {}
+
+    /**
+     * Evaluates the tables on the common fork-join pool.
+     *
+     * @param xTables xValues of each table.
+     * @param pTables pValues of each table, in the same order.
+     * @return The columnar results, index `i` describing table `i`.
+     * @throws IllegalArgumentException if the outer arrays are null or differ in length.
+     */
+    public static BatchResult evaluate(double[][] xTables, double[][] pTables) {
+        return evaluate(xTables, pTables, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates the tables on the given pool.
+     *
+     * @param xTables xValues of each table.
+     * @param pTables pValues of each table, in the same order.
+     * @param pool The pool to run on.
+     * @return The columnar results, index `i` describing table `i`.
+     * @throws IllegalArgumentException if the outer arrays are null or differ in length.
+     */
+    public static BatchResult evaluate(double[][] xTables, double[][] pTables, ForkJoinPool pool) {
+        if (xTables == null || pTables == null || pool == null) {
+            throw new IllegalArgumentException("Tables and pool cannot be null.");
+        }
+        if (xTables.length != pTables.length) {
+            throw new IllegalArgumentException("xTables and pTables must contain the same number of tables.");
+        }
+        // Running entry counts let each task split its range at the middle of its work
+        long[] workBefore = new long[xTables.length + 1];
+        for (int i = 0; i < xTables.length; i++) {
+            workBefore[i + 1] = workBefore[i] + (xTables[i] == null ? 0 : xTables[i].length) + 1;
+        }
+        BatchResult result = new BatchResult(xTables.length);
+        pool.invoke(new EvaluateTask(xTables, pTables, workBefore, result, 0, xTables.length));
+        return result;
+    }
+
+    /**
+     * Evaluates tables given as two parallel collections, e.g. lists, on the common pool.
+     *
+     * @param xTables xValues of each table.
+     * @param pTables pValues of each table, in the same iteration order.
+     * @return The columnar results, index `i` describing the i-th table.
+     * @throws IllegalArgumentException if the collections are null or differ in size.
+     */
+    public static BatchResult evaluate(Collection<double[]> xTables, Collection<double[]> pTables) {
+        if (xTables == null || pTables == null) {
+            throw new IllegalArgumentException("Tables cannot be null.");
+        }
+        if (xTables.size() != pTables.size()) {
+            throw new IllegalArgumentException("xTables and pTables must contain the same number of tables.");
+        }
+        double[][] x = new double[xTables.size()][];
+        double[][] p = new double[pTables.size()][];
+        Iterator<double[]> xs = xTables.iterator();
+        Iterator<double[]> ps = pTables.iterator();
+        for (int i = 0; i < x.length; i++) {
+            x[i] = xs.next();
+            p[i] = ps.next();
+        }
+        return evaluate(x, p);
+    }
+
+    /**
+     * Evaluates a stream of tables on the common pool, each element holding {xValues, pValues}.
+     * The stream is drained first (in encounter order) and the tables are then split by
+     * their entry counts like the array overloads, rather than by the stream's own spliterator,
+     * which knows nothing about how large each table is.
+     *
+     * @param tables The tables, element `i` being {xValues, pValues} of table `i`.
+     * @return The columnar results, index `i` describing the i-th table.
+     * @throws IllegalArgumentException if the stream is null, or an element is null or not a pair of arrays.
+     */
+    public static BatchResult evaluate(Stream<double[][]> tables) {
+        if (tables == null) {
+            throw new IllegalArgumentException("Tables cannot be null.");
+        }
+        double[][][] pairs = tables.toArray(double[][][]::new);
+        double[][] x = new double[pairs.length][];
+        double[][] p = new double[pairs.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            if (pairs[i] == null || pairs[i].length != 2) {
+                throw new IllegalArgumentException("Table " + i + " must be a pair {xValues, pValues}.");
+            }
+            x[i] = pairs[i][0];
+            p[i] = pairs[i][1];
+        }
+        return evaluate(x, p);
+    }
+
+    /**
+     * Evaluates the tables first..last-1, splitting in two while the range holds enough work.
+     */
+    private static final class EvaluateTask extends RecursiveAction {
+        private final double[][] xTables;
+        private final double[][] pTables;
+        private final long[] workBefore;
+        private final BatchResult result;
+        private final int first;
+        private final int last;
+
+        EvaluateTask(double[][] xTables, double[][] pTables, long[] workBefore,
+                     BatchResult result, int first, int last) {
+            this.xTables = xTables;
+            this.pTables = pTables;
+            this.workBefore = workBefore;
+            this.result = result;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first > 1 && workBefore[last] - workBefore[first] > ENTRIES_PER_TASK) {
+                int split = splitPoint();
+                invokeAll(new EvaluateTask(xTables, pTables, workBefore, result, first, split),
+                        new EvaluateTask(xTables, pTables, workBefore, result, split, last));
+                return;
+            }
+            for (int i = first; i < last; i++) {
+                evaluateOne(i);
+            }
+        }
+
+        /**
+         * @return The table index that halves the work in [first, last), strictly inside the range.
+         */
+        private int splitPoint() {
+            long middle = (workBefore[first] + workBefore[last]) / 2;
+            int low = first + 1;
+            int high = last - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (workBefore[mid] < middle) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void evaluateOne(int i) {
+            double[] x = xTables[i];
+            double[] p = pTables[i];
+            String error = DiscreteProbabilityDistribution.findStructureError(x, p);
+            if (error != null) {
+                result.setInvalid(i, error);
+                return;
+            }
+            Moments moments = Moments.accumulate(x, p); // Validates in the same pass
+            error = moments.validationError();
+            if (error != null) {
+                result.setInvalid(i, error);
+                return;
+            }
+            result.set(i, moments);
+        }
+    }
+}
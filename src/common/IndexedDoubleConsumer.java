@@ -0,0 +1,15 @@
+package common;
+
+/**
+ * Receives the values of a distribution table one entry at a time, together with their index.
+ * Used by the forEach visitors so callers can walk a table without copying it.
+ */
+@FunctionalInterface
+public interface IndexedDoubleConsumer {
+
+    /**
+     * @param index The position of the entry in the table.
+     * @param value The value stored at that position.
+     */
+    void accept(int index, double value);
+}
@@ -0,0 +1,167 @@
+package common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values (latencies in nanoseconds, table sizes),
+ * bucketed like HdrHistogram: values below 64 get a bucket each, and every power of two above
+ * that is split into 32 equal sub-buckets, so any recorded value is known to within about 3%.
+ * The whole long range fits in 1888 counters.
+ *
+ * Recording is a single atomic increment plus two striped adds, and never blocks.
+ * A snapshot is taken bucket by bucket while recording goes on, so it is consistent with
+ * itself but may include part of a concurrent burst.
+ */
+public final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records one value. Negative values count as 0.
+     *
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the nanoseconds elapsed since a System.nanoTime() reading.
+     *
+     * @param startNanos The earlier System.nanoTime() value.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may survive partially.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @return A copy of the current counts, for computing count, mean and percentiles.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    // --- Bucket layout ---
+
+    /**
+     * Bucket of a value: the value itself below 64, then 32 buckets per power of two.
+     */
+    static int indexOf(long value) {
+        int shift = Math.max(0, (64 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS + 1));
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The smallest value that falls into the bucket.
+     */
+    static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index - shift * SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * @return The largest value that falls into the bucket.
+     */
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return lowestValue(index) + ((1L << shift) - 1);
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return The mean of the recorded values, or 0 if there are none.
+         */
+        public double getMean() {
+            return (count == 0) ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the value at the given quantile: the largest value of the bucket holding
+         * that rank (never above the recorded maximum), like HdrHistogram's percentiles.
+         *
+         * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile.
+         * @return The value, or 0 if nothing was recorded.
+         * @throws IllegalArgumentException if quantile is outside [0, 1].
+         */
+        public long getValueAtQuantile(double quantile) {
+            if (!(quantile >= 0.0 && quantile <= 1.0)) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1. Found: " + quantile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
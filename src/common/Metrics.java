@@ -0,0 +1,237 @@
+package common;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the counters and histograms the library records on its hot paths:
+ * distribution construction (validation with the moments, table generation, cumulative
+ * sums), BinomialMath probabilities and report rendering.
+ *
+ * Recording is off unless the JVM starts with -Dprobability.metrics=true. The flag is a
+ * static final constant, so every instrumented site tests it as
+ * {@code if (Metrics.ENABLED) { ... }} and the JIT removes the whole block when it is off.
+ *
+ * Other code can register its own metrics by name, and everything registered is exported
+ * the same three ways: {@link #writeText(Appendable)} (the Prometheus text format),
+ * the JMX bean from {@link #registerMBean()} and the HTTP endpoint from
+ * {@link #startHttpServer(int)}.
+ */
+public final class Metrics {
+
+    /** The system property that switches recording on. */
+    public static final String ENABLED_PROPERTY = "probability.metrics";
+
+    /** Whether instrumented code records anything. Fixed at startup. */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    /** The name the JMX bean is registered under. */
+    public static final String OBJECT_NAME = "common:type=Metrics";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // Sorted, so every export lists the metrics in the same order
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LogLinearHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    // Private constructor to prevent instantiation of utility class
+    private Metrics() {}
+
+    // --- Registration ---
+
+    /**
+     * Returns the counter with this name, creating it on first use. Callers keep the
+     * result in a static final field rather than looking it up on every event.
+     *
+     * @param name Dot-separated name, e.g. "report.rows".
+     * @return The counter.
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(checkName(name), key -> new LongAdder());
+    }
+
+    /**
+     * Returns the histogram with this name, creating it on first use. By convention the
+     * name ends with the unit, e.g. "binomial.table.nanos".
+     *
+     * @param name Dot-separated name.
+     * @return The histogram.
+     */
+    public static LogLinearHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(checkName(name), key -> new LogLinearHistogram());
+    }
+
+    private static String checkName(String name) {
+        if (name == null || !name.matches("[a-z][a-z0-9_.]*")) {
+            throw new IllegalArgumentException("Metric names use lower-case letters, digits, '_' and '.'. Found: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+        HISTOGRAMS.values().forEach(LogLinearHistogram::reset);
+    }
+
+    // --- Export ---
+
+    /**
+     * Writes a snapshot in the Prometheus text format: counters as "name_total", histograms
+     * as summaries with p50/p90/p99/p99.9 plus "_sum" and "_count", each followed by a
+     * "_max" gauge (a summary family has no max sample of its own). Dots in the
+     * names become underscores.
+     *
+     * @param out The destination.
+     * @throws IOException if the destination fails.
+     */
+    public static void writeText(Appendable out) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writer.append("# Probability library metrics, recording ")
+                .append(ENABLED ? "enabled" : "disabled (-D" + ENABLED_PROPERTY + "=true)").newLine();
+        for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+            String name = exportName(entry.getKey()) + "_total";
+            writer.append("# TYPE ").append(name).append(" counter").newLine();
+            writer.append(name).append(' ').append(entry.getValue().sum()).newLine();
+        }
+        for (Map.Entry<String, LogLinearHistogram> entry : HISTOGRAMS.entrySet()) {
+            String name = exportName(entry.getKey());
+            LogLinearHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            writer.append("# TYPE ").append(name).append(" summary").newLine();
+            for (double quantile : QUANTILES) {
+                writer.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.getValueAtQuantile(quantile)).newLine();
+            }
+            writer.append(name).append("_sum ").append(snapshot.getSum()).newLine();
+            writer.append(name).append("_count ").append(snapshot.getCount()).newLine();
+            writer.append("# TYPE ").append(name).append("_max gauge").newLine();
+            writer.append(name).append("_max ").append(snapshot.getMax()).newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return The snapshot {@link #writeText(Appendable)} writes, as a string.
+     */
+    public static String snapshotText() {
+        StringBuilder text = new StringBuilder();
+        try {
+            writeText(text);
+        } catch (IOException e) {
+            throw new IllegalStateException("A StringBuilder cannot fail.", e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return Every counter, and the count, mean, p50, p90, p99 and max of every histogram.
+     */
+    static Map<String, Double> values() {
+        Map<String, Double> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, (double) counter.sum()));
+        HISTOGRAMS.forEach((name, histogram) -> {
+            LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+            values.put(name + ".count", (double) snapshot.getCount());
+            values.put(name + ".mean", snapshot.getMean());
+            values.put(name + ".p50", (double) snapshot.getValueAtQuantile(0.5));
+            values.put(name + ".p90", (double) snapshot.getValueAtQuantile(0.9));
+            values.put(name + ".p99", (double) snapshot.getValueAtQuantile(0.99));
+            values.put(name + ".max", (double) snapshot.getMax());
+        });
+        return values;
+    }
+
+    private static String exportName(String name) {
+        return name.replace('.', '_');
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under {@link #OBJECT_NAME},
+     * for jconsole, VisualVM or any JMX client. Registering twice is harmless.
+     *
+     * @return The name the bean is registered under.
+     * @throws IllegalStateException if the MBean server rejects the bean.
+     */
+    public static ObjectName registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                try {
+                    server.registerMBean(new MetricsBean(), name);
+                } catch (InstanceAlreadyExistsException e) {
+                    // Registered by another thread in the meantime
+                }
+            }
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the metrics MBean.", e);
+        }
+    }
+
+    /**
+     * Starts a plain-text endpoint on the loopback interface: GET /metrics returns
+     * {@link #snapshotText()}. Stop it with {@code server.stop(0)}.
+     *
+     * @param port The port to listen on, or 0 for any free port (see getAddress()).
+     * @return The running server.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static HttpServer startHttpServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = snapshotText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public Map<String, Double> getValues() {
+            return values();
+        }
+
+        @Override
+        public String getText() {
+            return snapshotText();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
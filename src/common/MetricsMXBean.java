@@ -0,0 +1,30 @@
+package common;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, registered by {@link Metrics#registerMBean()}.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return Whether recording is switched on (the probability.metrics system property).
+     */
+    boolean isEnabled();
+
+    /**
+     * @return Every counter by name, and for every histogram its count, mean, p50, p90, p99
+     *         and max under the histogram name plus ".count", ".mean", ".p50" and so on.
+     */
+    Map<String, Double> getValues();
+
+    /**
+     * @return The same text the HTTP endpoint serves.
+     */
+    String getText();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
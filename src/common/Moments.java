@@ -0,0 +1,235 @@
+package common;
+
+/**
+ * The moments of a discrete distribution, computed in a single traversal of its table:
+ * mean, variance, skewness, excess kurtosis and Shannon entropy, plus the total probability.
+ * The same pass checks that every probability lies in [0, 1], so validating a distribution
+ * and computing its moments cost one walk over the data.
+ *
+ * The table is processed in cache-sized blocks. Inside a block the values are read twice
+ * while they are still in L1 (once for the block's weight and mean, once for its central
+ * moments). Blocks are then merged with the pairwise update formulas of Chan et al. and
+ * Pébay, which stay accurate on long tables where plain running sums of x*P(x) lose digits.
+ * The total probability is a {@link CompensatedSum} of the block weights.
+ */
+public final class Moments {
+
+    // Block length in entries, two doubles per entry keeps a block well inside L1
+    private static final int BLOCK = 512;
+
+    private final double totalProbability; // Σ P(x)
+    private final double mean; // Σ x * P(x)
+    private final double variance; // Σ (x - μ)² * P(x)
+    private final double skewness; // Third standardised moment
+    private final double excessKurtosis; // Fourth standardised moment minus 3
+    private final double entropy; // -Σ P(x) ln P(x), in nats
+    private final boolean probabilitiesInRange; // Every P(x) lies in [0, 1]
+    private final double invalidProbability; // First probability outside [0, 1] (may be NaN itself)
+
+    private Moments(double totalProbability, double mean, double variance, double skewness,
+                    double excessKurtosis, double entropy, boolean probabilitiesInRange,
+                    double invalidProbability) {
+        this.totalProbability = totalProbability;
+        this.mean = mean;
+        this.variance = variance;
+        this.skewness = skewness;
+        this.excessKurtosis = excessKurtosis;
+        this.entropy = entropy;
+        this.probabilitiesInRange = probabilitiesInRange;
+        this.invalidProbability = invalidProbability;
+    }
+
+    /**
+     * Computes the moments of the table and validates it like DiscreteProbabilityDistribution does.
+     *
+     * @param x Values of the random variable.
+     * @param p Corresponding probabilities P(X=x).
+     * @return The moments.
+     * @throws IllegalArgumentException if the arrays are not a valid distribution.
+     */
+    public static Moments of(double[] x, double[] p) {
+        String error = DiscreteProbabilityDistribution.findStructureError(x, p);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        Moments moments = accumulate(x, p);
+        error = moments.validationError();
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return moments;
+    }
+
+    /**
+     * The single pass. Assumes non-null arrays of the same, non-zero length;
+     * probability problems are recorded for {@link #validationError()} instead of thrown.
+     */
+    static Moments accumulate(double[] x, double[] p) {
+        // Running totals over the blocks merged so far
+        double weight = 0.0; // The plain sum, for the merge formulas
+        CompensatedSum totalWeight = new CompensatedSum();
+        double mean = 0.0; // Weighted mean of the merged blocks
+        double m2 = 0.0; // Σ P(x) (x - mean)^k for k = 2, 3, 4
+        double m3 = 0.0;
+        double m4 = 0.0;
+        double entropy = 0.0;
+        boolean inRange = true;
+        double invalid = 0.0;
+
+        for (int start = 0; start < x.length; start += BLOCK) {
+            int end = Math.min(start + BLOCK, x.length);
+
+            // Block pass 1: weight, shifted first moment, entropy and the range of probabilities
+            double shift = x[start];
+            double w = 0.0;
+            double s1 = 0.0;
+            double h = 0.0;
+            double minP = 1.0;
+            double maxP = 0.0;
+            for (int i = start; i < end; i++) {
+                double pi = p[i];
+                w += pi;
+                s1 += pi * (x[i] - shift);
+                h -= (pi > 0.0) ? pi * Math.log(pi) : 0.0;
+                minP = Math.min(minP, pi); // Math.min/max carry NaN through
+                maxP = Math.max(maxP, pi);
+            }
+            if (!(minP >= 0.0 && maxP <= 1.0) && inRange) {
+                inRange = false;
+                invalid = firstInvalid(p, start, end);
+            }
+            if (!(w > 0.0)) {
+                continue; // Nothing to merge (all zero, or invalid and already recorded)
+            }
+            double blockMean = shift + s1 / w;
+
+            // Block pass 2: central moments about the block mean, data still in cache
+            double c2 = 0.0;
+            double c3 = 0.0;
+            double c4 = 0.0;
+            for (int i = start; i < end; i++) {
+                double d = x[i] - blockMean;
+                double pd2 = p[i] * d * d;
+                c2 += pd2;
+                c3 += pd2 * d;
+                c4 += pd2 * d * d;
+            }
+
+            // Merge the block into the totals (pairwise update of the central moments)
+            if (weight == 0.0) {
+                mean = blockMean;
+                m2 = c2;
+                m3 = c3;
+                m4 = c4;
+            } else {
+                double total = weight + w;
+                double delta = blockMean - mean;
+                double deltaOverTotal = delta / total;
+                double term = delta * deltaOverTotal * weight * w; // δ² wA wB / W
+                m4 += c4 + term * deltaOverTotal * deltaOverTotal * (weight * weight - weight * w + w * w)
+                        + 6.0 * deltaOverTotal * deltaOverTotal * (weight * weight * c2 + w * w * m2)
+                        + 4.0 * deltaOverTotal * (weight * c3 - w * m3);
+                m3 += c3 + term * deltaOverTotal * (weight - w)
+                        + 3.0 * deltaOverTotal * (weight * c2 - w * m2);
+                m2 += c2 + term;
+                mean += w * deltaOverTotal;
+            }
+            entropy += h;
+
+            weight += w;
+            totalWeight.add(w);
+        }
+        weight = totalWeight.get();
+
+        // Report the unnormalised sums the repo has always used: E[X] = Σ x P(x) and
+        // Var(X) = Σ (x - E[X])² P(x). They equal the normalised ones when Σ P(x) = 1.
+        double expectedValue = weight * mean;
+        double shiftToExpected = mean - expectedValue;
+        double variance = m2 + weight * shiftToExpected * shiftToExpected;
+        double normalisedM2 = m2 / weight;
+        double skewness = (m3 / weight) / (normalisedM2 * Math.sqrt(normalisedM2));
+        double excessKurtosis = (m4 / weight) / (normalisedM2 * normalisedM2) - 3.0;
+        if (!(weight > 0.0)) {
+            expectedValue = variance = skewness = excessKurtosis = Double.NaN;
+        }
+        return new Moments(weight, expectedValue, variance, skewness, excessKurtosis, entropy, inRange, invalid);
+    }
+
+    private static double firstInvalid(double[] p, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!(p[i] >= 0 && p[i] <= 1)) {
+                return p[i];
+            }
+        }
+        return Double.NaN; // Not reached, callers only ask when the block holds an offender
+    }
+
+    /**
+     * Describes why the table is not a valid distribution, using the same checks and
+     * messages as the DiscreteProbabilityDistribution constructor.
+     *
+     * @return The problem, or null if the probabilities are valid.
+     */
+    String validationError() {
+        if (!probabilitiesInRange) {
+            return "Probabilities must be between 0 and 1 (inclusive). Found: " + invalidProbability;
+        }
+        // Check if the sum of probabilities is close to 1
+        double tolerance = 1e-9; // Tolerance for floating-point comparison
+        if (Math.abs(totalProbability - 1.0) > tolerance) {
+            return "Probabilities do not sum to 1 (Sum = " + totalProbability + ")";
+        }
+        return null;
+    }
+
+    // --- Getters ---
+
+    /**
+     * @return Σ P(x), close to 1 for a valid distribution.
+     */
+    public double getTotalProbability() {
+        return totalProbability;
+    }
+
+    /**
+     * @return The expected value E[X] = Σ x * P(x).
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The variance Var(X) = Σ (x - μ)² * P(x).
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    /**
+     * @return The standard deviation σ = sqrt(Var(X)).
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * @return The skewness E[(X - μ)³] / σ³, NaN if the variance is 0.
+     */
+    public double getSkewness() {
+        return skewness;
+    }
+
+    /**
+     * @return The excess kurtosis E[(X - μ)⁴] / σ⁴ - 3, NaN if the variance is 0.
+     */
+    public double getExcessKurtosis() {
+        return excessKurtosis;
+    }
+
+    /**
+     * @return The Shannon entropy -Σ P(x) ln P(x), in nats.
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+}
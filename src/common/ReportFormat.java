@@ -0,0 +1,13 @@
+package common;
+
+/**
+ * The output formats the reporters can render.
+ */
+public enum ReportFormat {
+    /** The human-readable tables printed by the applications. */
+    TEXT,
+    /** One header line, then one comma-separated line per row, numbers at full precision. */
+    CSV,
+    /** A single JSON object holding the summary values and an array of rows, numbers at full precision. */
+    JSON
+}
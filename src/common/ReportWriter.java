@@ -0,0 +1,313 @@
+package common;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Renders reports into one reusable buffer and hands them to the destination in large
+ * chunks, instead of one println/printf call per row. Fixed-precision numbers are formatted
+ * directly into the buffer, so rendering a row allocates nothing.
+ *
+ * {@link #appendFixed(double, int, RoundingMode)} reproduces the two formatters the reporters
+ * have always used, character for character: HALF_UP gives the output of
+ * {@code String.format("%.nf", value)} and HALF_EVEN that of {@code new DecimalFormat("0.00..")}.
+ * Values whose rounding is too close to call in double arithmetic (near-ties, very large
+ * numbers, NaN and infinities) are handed to those formatters themselves.
+ *
+ * Call {@link #flush()} when done; the destination itself is neither flushed nor closed.
+ * This class is not thread-safe.
+ */
+public final class ReportWriter implements Flushable {
+
+    /** Buffered characters that trigger a write to the destination. */
+    static final int CHUNK_CHARS = 1 << 16;
+
+    private static final int MAX_FAST_DECIMALS = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    // Beyond this the scaled value no longer has enough fraction bits to decide the rounding
+    private static final double MAX_FAST_SCALED = 1e15;
+
+    // Starts small and grows to a chunk, so short reports don't pay for a full-size buffer
+    private final StringBuilder buffer = new StringBuilder(1024);
+    private final String lineSeparator = System.lineSeparator();
+
+    // Exactly one of the two destinations is set
+    private final Appendable out;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private ByteBuffer bytes; // Sized on the first drain, at most one encoded chunk
+    private char[] chars; // Array copy of the buffer for the encoder's fast path
+
+    // The formatters we imitate follow the default FORMAT locale, and so do we
+    private final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    private final char decimalSeparator;
+    private final boolean fastPath; // The locale writes numbers with ASCII digits and '-'
+    private final DecimalFormat[] decimalFormats = new DecimalFormat[MAX_FAST_DECIMALS + 1]; // Created on demand
+
+    /**
+     * Creates a writer that appends to a character destination,
+     * such as System.out, a Writer or a StringBuilder.
+     *
+     * @param out The destination.
+     */
+    public ReportWriter(Appendable out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output cannot be null.");
+        }
+        this.out = out;
+        this.channel = null;
+        this.encoder = null;
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.fastPath = symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+    }
+
+    /**
+     * Creates a writer that encodes to UTF-8 and writes to a byte channel.
+     *
+     * @param channel The destination, for example a FileChannel or a socket.
+     */
+    public ReportWriter(WritableByteChannel channel) {
+        this(channel, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a writer that encodes with the given charset and writes to a byte channel.
+     *
+     * @param channel The destination.
+     * @param charset The character encoding of the output.
+     */
+    public ReportWriter(WritableByteChannel channel, Charset charset) {
+        if (channel == null || charset == null) {
+            throw new IllegalArgumentException("Channel and charset cannot be null.");
+        }
+        this.out = null;
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.fastPath = symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+    }
+
+    // --- Appending ---
+
+    public ReportWriter append(CharSequence text) throws IOException {
+        buffer.append(text);
+        return drainIfFull();
+    }
+
+    public ReportWriter append(char c) throws IOException {
+        buffer.append(c);
+        return drainIfFull();
+    }
+
+    public ReportWriter append(long value) throws IOException {
+        buffer.append(value);
+        return drainIfFull();
+    }
+
+    /**
+     * Appends the shortest decimal form that reads back as the same double,
+     * the same text as Double.toString (and string concatenation).
+     */
+    public ReportWriter append(double value) throws IOException {
+        buffer.append(value);
+        return drainIfFull();
+    }
+
+    /**
+     * Appends the platform line separator, like println and printf's %n.
+     */
+    public ReportWriter newLine() throws IOException {
+        buffer.append(lineSeparator);
+        return drainIfFull();
+    }
+
+    /**
+     * Appends a whole number left-aligned in a field of the given width,
+     * like printf's %-{width}d.
+     *
+     * @param value The number.
+     * @param width The minimum number of characters to use.
+     */
+    public ReportWriter appendLeftAligned(long value, int width) throws IOException {
+        if (!fastPath) {
+            // printf writes the locale's own digits, leave those locales to it
+            buffer.append(String.format(locale, (width > 0) ? "%-" + width + "d" : "%d", value));
+            return drainIfFull();
+        }
+        int start = buffer.length();
+        buffer.append(value);
+        for (int i = buffer.length() - start; i < width; i++) {
+            buffer.append(' ');
+        }
+        return drainIfFull();
+    }
+
+    /**
+     * Appends the number as a JSON value: its shortest decimal form,
+     * or null for NaN and infinities, which JSON cannot represent.
+     */
+    public ReportWriter appendJsonNumber(double value) throws IOException {
+        if (Double.isFinite(value)) {
+            buffer.append(value);
+        } else {
+            buffer.append("null");
+        }
+        return drainIfFull();
+    }
+
+    /**
+     * Appends the number with a fixed count of decimals, matching an existing formatter.
+     *
+     * @param value The number to format.
+     * @param decimals The number of digits after the decimal separator.
+     * @param mode HALF_UP to match String.format("%.nf"), HALF_EVEN to match DecimalFormat("0.0…").
+     * @throws IllegalArgumentException if decimals is negative or mode is any other rounding mode.
+     */
+    public ReportWriter appendFixed(double value, int decimals, RoundingMode mode) throws IOException {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Number of decimals cannot be negative.");
+        }
+        if (mode != RoundingMode.HALF_UP && mode != RoundingMode.HALF_EVEN) {
+            throw new IllegalArgumentException("Only HALF_UP and HALF_EVEN rounding are supported. Found: " + mode);
+        }
+        if (!appendFixedFast(value, decimals)) {
+            buffer.append(formatSlow(value, decimals, mode));
+        }
+        return drainIfFull();
+    }
+
+    /**
+     * Formats without any allocation when the rounding is unambiguous.
+     *
+     * @return false, leaving the buffer untouched, if the value needs the exact formatter.
+     */
+    private boolean appendFixedFast(double value, int decimals) {
+        if (!fastPath || decimals > MAX_FAST_DECIMALS || !Double.isFinite(value)) {
+            return false;
+        }
+        long power = POWERS_OF_TEN[decimals];
+        double scaled = Math.abs(value) * power; // Exact powers of ten, a single rounding error
+        if (!(scaled < MAX_FAST_SCALED)) {
+            return false;
+        }
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        // Within a few ulps of .5 the exact decimal value could fall on either side of the tie,
+        // and the two formatters break ties differently: leave those to them
+        if (Math.abs(fraction - 0.5) <= 64 * Math.ulp(scaled)) {
+            return false;
+        }
+        long rounded = (long) whole + (fraction > 0.5 ? 1 : 0);
+
+        // Both formatters keep the sign of negative values that round to zero ("-0.00")
+        if (value < 0.0 || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+            buffer.append('-');
+        }
+        buffer.append(rounded / power);
+        if (decimals > 0) {
+            buffer.append(decimalSeparator);
+            long digits = rounded % power;
+            for (long p = power / 10; p > digits && p > 1; p /= 10) {
+                buffer.append('0'); // Leading zeros of the fraction
+            }
+            buffer.append(digits);
+        }
+        return true;
+    }
+
+    private String formatSlow(double value, int decimals, RoundingMode mode) {
+        if (mode == RoundingMode.HALF_UP) {
+            return String.format(locale, "%." + decimals + "f", value);
+        }
+        DecimalFormat format = (decimals < decimalFormats.length) ? decimalFormats[decimals] : null;
+        if (format == null) {
+            format = new DecimalFormat(decimals == 0 ? "0" : "0." + "0".repeat(decimals),
+                    DecimalFormatSymbols.getInstance(locale));
+            if (decimals < decimalFormats.length) {
+                decimalFormats[decimals] = format;
+            }
+        }
+        return format.format(value);
+    }
+
+    // --- Output ---
+
+    private ReportWriter drainIfFull() throws IOException {
+        if (buffer.length() >= CHUNK_CHARS) {
+            drain();
+        }
+        return this;
+    }
+
+    /**
+     * Writes everything buffered so far to the destination.
+     * Does not flush or close the destination itself.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        if (out != null) {
+            out.append(buffer);
+            buffer.setLength(0);
+            return;
+        }
+        // Encoders are much faster on an array-backed CharBuffer than on a CharSequence view
+        int length = buffer.length();
+        if (chars == null || chars.length < length) {
+            chars = new char[length];
+        }
+        // The encoder loop below writes as often as needed, so the byte buffer only has
+        // to be big enough to keep the writes large
+        int wanted = (int) (Math.min(length, CHUNK_CHARS) * encoder.maxBytesPerChar()) + 16;
+        if (bytes == null || bytes.capacity() < wanted) {
+            bytes = ByteBuffer.allocate(wanted);
+        }
+        buffer.getChars(0, length, chars, 0);
+        CharBuffer pending = CharBuffer.wrap(chars, 0, length);
+        while (true) {
+            CoderResult result = encoder.encode(pending, bytes, false);
+            if (result.isError()) {
+                try {
+                    result.throwException();
+                } catch (CharacterCodingException e) {
+                    throw new IOException("Cannot encode report output.", e);
+                }
+            }
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        // A trailing high surrogate waits for its pair in the next chunk
+        buffer.delete(0, pending.position());
+    }
+}
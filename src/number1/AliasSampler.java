@@ -0,0 +1,202 @@
+package number1;
+
+import common.DiscreteProbabilityDistribution;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws random values from a DiscreteProbabilityDistribution using Walker's alias method
+ * (Vose's variant). Building the tables is O(n) once, after that every draw is O(1):
+ * one uniform column index plus one uniform coin flip, whatever the size of the table.
+ *
+ * The sampler is immutable and can be shared between threads. Methods taking a
+ * RandomGenerator use the caller's generator, the others use a per-thread stream
+ * split from this sampler's root generator, so threads never share random state.
+ */
+public final class AliasSampler {
+
+    private final double[] values; // The x values, indexed like the distribution
+    private final double[] keep; // Probability of keeping column i instead of taking alias[i]
+    private final int[] alias; // The outcome sharing column i
+    private final SplittableRandom root; // Source of the per-thread streams, guarded by itself
+    private final ThreadLocal<RandomGenerator> threadStream = ThreadLocal.withInitial(this::splitStream);
+
+    /**
+     * Creates a sampler whose per-thread streams are seeded unpredictably.
+     *
+     * @param distribution The distribution to sample from.
+     * @throws IllegalArgumentException if distribution is null.
+     */
+    public AliasSampler(DiscreteProbabilityDistribution distribution) {
+        this(distribution, new SplittableRandom());
+    }
+
+    /**
+     * Creates a sampler whose per-thread streams are split from a seeded root,
+     * so single-threaded runs are reproducible.
+     *
+     * @param distribution The distribution to sample from.
+     * @param seed Seed of the root generator.
+     * @throws IllegalArgumentException if distribution is null.
+     */
+    public AliasSampler(DiscreteProbabilityDistribution distribution, long seed) {
+        this(distribution, new SplittableRandom(seed));
+    }
+
+    private AliasSampler(DiscreteProbabilityDistribution distribution, SplittableRandom root) {
+        if (distribution == null) {
+            throw new IllegalArgumentException("Distribution cannot be null.");
+        }
+        int size = distribution.getSize();
+        this.values = distribution.getXValues(); // Copied once, draws then read it directly
+        this.keep = new double[size];
+        this.alias = new int[size];
+        this.root = root;
+        buildTables(distribution);
+    }
+
+    /**
+     * Vose's construction: scale every probability by n so the average column holds 1,
+     * then repeatedly top up an under-full column with the excess of an over-full one.
+     */
+    private void buildTables(DiscreteProbabilityDistribution distribution) {
+        int size = keep.length;
+        double total = 0.0;
+        for (int i = 0; i < size; i++) {
+            total += distribution.getP(i); // Normalise away the validation tolerance
+        }
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = distribution.getP(i) * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int under = small[--smallCount];
+            int over = large[--largeCount];
+            keep[under] = scaled[under];
+            alias[under] = over;
+            scaled[over] = (scaled[over] + scaled[under]) - 1.0; // Moves the excess into column `under`
+            if (scaled[over] < 1.0) {
+                small[smallCount++] = over;
+            } else {
+                large[largeCount++] = over;
+            }
+        }
+        // Whatever is left is full up to rounding error
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            keep[i] = 1.0;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            keep[i] = 1.0;
+            alias[i] = i;
+        }
+    }
+
+    private RandomGenerator splitStream() {
+        synchronized (root) {
+            return root.split();
+        }
+    }
+
+    // --- Single draws ---
+
+    /**
+     * Draws the table index of one outcome.
+     *
+     * @param random The generator to draw from.
+     * @return An index i with probability P(X = getX(i)).
+     */
+    public int sampleIndex(RandomGenerator random) {
+        int column = random.nextInt(keep.length);
+        return random.nextDouble() < keep[column] ? column : alias[column];
+    }
+
+    /**
+     * Draws one value of X.
+     *
+     * @param random The generator to draw from.
+     * @return A random x value.
+     */
+    public double sample(RandomGenerator random) {
+        return values[sampleIndex(random)];
+    }
+
+    /**
+     * Draws one value of X from the calling thread's own stream.
+     *
+     * @return A random x value.
+     */
+    public double sample() {
+        return sample(threadStream.get());
+    }
+
+    // --- Batch draws, no allocation ---
+
+    /**
+     * Fills the array with independent draws of X.
+     *
+     * @param out The array to fill.
+     * @param random The generator to draw from.
+     */
+    public void fill(double[] out, RandomGenerator random) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = values[sampleIndex(random)];
+        }
+    }
+
+    /**
+     * Fills the array with the table indexes of independent draws.
+     *
+     * @param indices The array to fill.
+     * @param random The generator to draw from.
+     */
+    public void fill(int[] indices, RandomGenerator random) {
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = sampleIndex(random);
+        }
+    }
+
+    /**
+     * Fills the array with independent draws of X from the calling thread's own stream.
+     *
+     * @param out The array to fill.
+     */
+    public void fill(double[] out) {
+        fill(out, threadStream.get());
+    }
+
+    /**
+     * Fills the array with table indexes drawn from the calling thread's own stream.
+     *
+     * @param indices The array to fill.
+     */
+    public void fill(int[] indices) {
+        fill(indices, threadStream.get());
+    }
+
+    /**
+     * @return The random stream the calling thread uses for the no-generator methods.
+     */
+    public RandomGenerator getThreadStream() {
+        return threadStream.get();
+    }
+
+    /**
+     * @return The number of outcomes in the table.
+     */
+    public int getSize() {
+        return keep.length;
+    }
+}
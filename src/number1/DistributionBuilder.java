@@ -0,0 +1,235 @@
+package number1;
+
+import common.DiscreteProbabilityDistribution;
+
+import java.util.Arrays;
+
+/**
+ * Builds a DiscreteProbabilityDistribution incrementally from observed outcomes.
+ * Observations can arrive one at a time, with a weight (repeat count), or in batches;
+ * nothing is buffered beyond one counter per distinct value. Counts live in a primitive
+ * open-addressing map from double to long, and the mean and variance are kept up to date
+ * with Welford's online method, so they are available at any point in O(1).
+ * {@link #snapshot()} turns the current counts into a normalised distribution in
+ * O(d log d) for d distinct values, independent of how many observations were made.
+ *
+ * This class is not thread-safe; use one builder per thread and merge them with
+ * {@link #addAll(DistributionBuilder)}.
+ */
+public class DistributionBuilder {
+
+    private static final int INITIAL_CAPACITY = 16; // Must be a power of two
+    private static final double MAX_LOAD = 0.5; // Keeps linear probing runs short
+
+    private double[] keys = new double[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY]; // 0 marks an empty slot
+    private int distinct = 0;
+
+    private long total = 0; // Number of observations so far
+    private double mean = 0.0; // Welford running mean
+    private double m2 = 0.0; // Welford running sum of squared deviations
+
+    /**
+     * Records a single observation.
+     *
+     * @param x The observed value (must not be NaN).
+     * @throws IllegalArgumentException if x is NaN.
+     */
+    public void add(double x) {
+        add(x, 1);
+    }
+
+    /**
+     * Records the value x observed `count` times.
+     *
+     * @param x The observed value (must not be NaN).
+     * @param count How many times it was observed (must be non-negative).
+     * @throws IllegalArgumentException if x is NaN or count is negative.
+     */
+    public void add(double x, long count) {
+        if (Double.isNaN(x)) {
+            throw new IllegalArgumentException("Observed value cannot be NaN.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Observation count cannot be negative. Found: " + count);
+        }
+        if (count == 0) {
+            return;
+        }
+        x += 0.0; // Folds -0.0 into 0.0 so both count as the same outcome
+        increment(x, count);
+
+        // Weighted Welford update: treats the batch as `count` copies of x
+        long newTotal = Math.addExact(total, count);
+        double delta = x - mean;
+        mean += delta * ((double) count / newTotal);
+        m2 += delta * (x - mean) * count;
+        total = newTotal;
+    }
+
+    /**
+     * Records every value in the array once.
+     *
+     * @param xs The observed values (none may be NaN).
+     * @throws IllegalArgumentException if a value is NaN; earlier values stay recorded.
+     */
+    public void addAll(double[] xs) {
+        for (double x : xs) {
+            add(x, 1);
+        }
+    }
+
+    /**
+     * Records xs[i] observed counts[i] times, for every i.
+     *
+     * @param xs The observed values (none may be NaN).
+     * @param counts How often each was observed (non-negative).
+     * @throws IllegalArgumentException if the arrays differ in length, or a value or count is invalid.
+     */
+    public void addAll(double[] xs, long[] counts) {
+        if (xs.length != counts.length) {
+            throw new IllegalArgumentException("Values and counts arrays must have the same length.");
+        }
+        for (int i = 0; i < xs.length; i++) {
+            add(xs[i], counts[i]);
+        }
+    }
+
+    /**
+     * Merges all observations recorded by another builder into this one.
+     *
+     * @param other The builder to merge (unchanged).
+     */
+    public void addAll(DistributionBuilder other) {
+        // Read through local references so merging a builder into itself is well defined
+        double[] otherKeys = other.keys;
+        long[] otherCounts = other.counts;
+        for (int slot = 0; slot < otherKeys.length; slot++) {
+            if (otherCounts[slot] != 0) {
+                add(otherKeys[slot], otherCounts[slot]);
+            }
+        }
+    }
+
+    // --- Open-addressing map ---
+
+    private void increment(double x, long count) {
+        int slot = findSlot(keys, counts, x);
+        if (counts[slot] == 0) {
+            keys[slot] = x;
+            distinct++;
+        }
+        counts[slot] = Math.addExact(counts[slot], count);
+        if (distinct > keys.length * MAX_LOAD) {
+            grow();
+        }
+    }
+
+    /**
+     * @return The slot holding x, or the empty slot where it would be inserted.
+     */
+    private static int findSlot(double[] keys, long[] counts, double x) {
+        int mask = keys.length - 1;
+        int slot = hash(x) & mask;
+        while (counts[slot] != 0 && keys[slot] != x) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        double[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new double[oldKeys.length * 2];
+        counts = new long[oldCounts.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = findSlot(keys, counts, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the value (MurmurHash3 finaliser), so integers and
+     * other regular values don't cluster in the low bits.
+     */
+    private static int hash(double x) {
+        long h = Double.doubleToLongBits(x);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // --- Current state ---
+
+    /**
+     * @return The number of observations recorded so far.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * @param x A value.
+     * @return How many times x has been observed.
+     */
+    public long getCount(double x) {
+        if (Double.isNaN(x)) {
+            return 0;
+        }
+        return counts[findSlot(keys, counts, x + 0.0)];
+    }
+
+    /**
+     * @return The number of distinct values observed so far.
+     */
+    public int getDistinctCount() {
+        return distinct;
+    }
+
+    /**
+     * @return The running mean of the observations, NaN before the first one.
+     */
+    public double getMean() {
+        return total == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return The running (population) variance of the observations, NaN before the first one.
+     *         Matches the variance of the snapshot distribution.
+     */
+    public double getVariance() {
+        return total == 0 ? Double.NaN : m2 / total;
+    }
+
+    /**
+     * Produces the empirical distribution of everything observed so far, with the x values
+     * in ascending order and P(x) = count(x) / total. The builder keeps accepting observations.
+     *
+     * @return A new, validated distribution.
+     * @throws IllegalStateException if nothing has been observed yet.
+     */
+    public DiscreteProbabilityDistribution snapshot() {
+        if (total == 0) {
+            throw new IllegalStateException("Cannot create a distribution before any observation.");
+        }
+        double[] xs = new double[distinct];
+        int next = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                xs[next++] = keys[slot];
+            }
+        }
+        Arrays.sort(xs);
+        double[] ps = new double[distinct];
+        for (int i = 0; i < xs.length; i++) {
+            ps[i] = (double) counts[findSlot(keys, counts, xs[i])] / total;
+        }
+        return new DiscreteProbabilityDistribution(xs, ps);
+    }
+}
@@ -1,15 +1,32 @@
 package number1;
 
-import java.text.DecimalFormat;
+import common.DiscreteProbabilityDistribution;
+import common.LogLinearHistogram;
+import common.Metrics;
+import common.ReportFormat;
+import common.ReportWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handles the formatted printing of distribution calculations.
+ * Reports are rendered through a ReportWriter, which formats the numbers into one buffer
+ * and writes it out in large chunks, so long tables print quickly.
  */
 public class DistributionReporter {
 
-    private final DecimalFormat df2 = new DecimalFormat("0.00");   // 2 decimal places
-    private final DecimalFormat df4 = new DecimalFormat("0.0000"); // 4 decimal places
-    private final DecimalFormat df5 = new DecimalFormat("0.00000");// 5 decimal places
+    // DecimalFormat("0.00") style rounding for P(x) and results, printf style for "%.nf" columns
+    private static final RoundingMode DF = RoundingMode.HALF_EVEN;
+    private static final RoundingMode PRINTF = RoundingMode.HALF_UP;
+
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram RENDER_NANOS = Metrics.histogram("report.discrete.nanos");
+    private static final LongAdder ROWS = Metrics.counter("report.rows");
+
     private final DiscreteProbabilityDistribution distribution;
 
     public DistributionReporter(DiscreteProbabilityDistribution distribution) {
@@ -23,86 +40,201 @@ public class DistributionReporter {
      * Prints the detailed calculation steps for the Expected Value.
      */
     public void printExpectedValueCalculation() {
-        System.out.println("Menghitung Expected Value (Nilai Harapan):");
-        System.out.println("----------------------------------------------");
-        System.out.println(" x   | P(x)  | x * P(x)");
-        System.out.println("-----|-------|----------");
+        print(this::writeExpectedValueCalculation);
+    }
+
+    /**
+     * Prints the detailed calculation steps for the Variance.
+     */
+    public void printVarianceCalculation() {
+        print(this::writeVarianceCalculation);
+    }
+
+    /**
+     * Prints the calculated Standard Deviation.
+     */
+    public void printStandardDeviation() {
+        print(this::writeStandardDeviation);
+    }
+
+    /**
+     * Prints all calculation reports.
+     */
+    public void printFullReport() {
+        print(out -> writeReport(out, ReportFormat.TEXT));
+    }
+
+    /**
+     * Writes the full report to a character destination.
+     *
+     * @param out The destination, e.g. a Writer or StringBuilder.
+     * @param format TEXT for the printed report, CSV or JSON for the per-row calculation values.
+     * @throws IOException if the destination fails.
+     */
+    public void writeReport(Appendable out, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writeReport(writer, format);
+        writer.flush();
+    }
+
+    /**
+     * Writes the full report to a byte channel, encoded as UTF-8.
+     *
+     * @param channel The destination, e.g. a FileChannel.
+     * @param format TEXT for the printed report, CSV or JSON for the per-row calculation values.
+     * @throws IOException if the channel fails.
+     */
+    public void writeReport(WritableByteChannel channel, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(channel);
+        writeReport(writer, format);
+        writer.flush();
+    }
 
-        double[] xValues = distribution.getXValues();
-        double[] pValues = distribution.getPValues();
-        double expectedValueSum = 0; // Recalculate sum for printing steps
+    /**
+     * Renders the full report into a writer, leaving it to the caller to flush.
+     *
+     * @param out The writer.
+     * @param format The output format.
+     * @throws IOException if the writer's destination fails.
+     */
+    public void writeReport(ReportWriter out, ReportFormat format) throws IOException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        switch (format) {
+            case TEXT:
+                writeExpectedValueCalculation(out);
+                writeVarianceCalculation(out);
+                writeStandardDeviation(out);
+                break;
+            case CSV:
+                writeCsv(out);
+                break;
+            case JSON:
+                writeJson(out);
+                break;
+        }
+        if (Metrics.ENABLED) {
+            RENDER_NANOS.recordSince(start);
+            ROWS.add(distribution.getSize());
+        }
+    }
+
+    // --- Text sections ---
+
+    private void writeExpectedValueCalculation(ReportWriter out) throws IOException {
+        out.append("Menghitung Expected Value (Nilai Harapan):").newLine();
+        out.append("----------------------------------------------").newLine();
+        out.append(" x   | P(x)  | x * P(x)").newLine();
+        out.append("-----|-------|----------").newLine();
 
         for (int i = 0; i < distribution.getSize(); i++) {
-            double x = xValues[i];
-            double p = pValues[i];
+            double x = distribution.getX(i);
+            double p = distribution.getP(i);
             double xp = x * p;
-            expectedValueSum += xp; // Summing up for the final line
-            System.out.println(
-                    String.format(" %.0f", x) + "   | " +
-                            df2.format(p) + "  | " +
-                            String.format("%.0f(%.2f) = ", x, p) + df2.format(xp)
-            );
+            // " 1   | 0.16  | 1(0.16) = 0.16"
+            out.append(' ').appendFixed(x, 0, PRINTF).append("   | ")
+                    .appendFixed(p, 2, DF).append("  | ")
+                    .appendFixed(x, 0, PRINTF).append('(').appendFixed(p, 2, PRINTF).append(") = ")
+                    .appendFixed(xp, 2, DF).newLine();
         }
-        System.out.println("----------------------------------------------");
+        out.append("----------------------------------------------").newLine();
         // Use the calculated value from distribution for final sum consistency
-        System.out.println(" Σ [x * P(x)] = " + df4.format(distribution.getExpectedValue()));
-        System.out.println("Expected Value E(X) = μ = " + df2.format(distribution.getExpectedValue()));
-        System.out.println("\n----------------------------------------------\n");
+        out.append(" Σ [x * P(x)] = ").appendFixed(distribution.getExpectedValue(), 4, DF).newLine();
+        out.append("Expected Value E(X) = μ = ").appendFixed(distribution.getExpectedValue(), 2, DF).newLine();
+        out.append("\n----------------------------------------------\n").newLine();
     }
 
-    /**
-     * Prints the detailed calculation steps for the Variance.
-     */
-    public void printVarianceCalculation() {
-        System.out.println("Menghitung Variance:");
-        System.out.println("---------------------------------------------------------------------");
-        System.out.println(" x   | P(x)  |  x - μ   |  (x - μ)² | (x - μ)² * P(x)");
-        System.out.println("-----|-------|----------|-----------|-----------------");
+    private void writeVarianceCalculation(ReportWriter out) throws IOException {
+        out.append("Menghitung Variance:").newLine();
+        out.append("---------------------------------------------------------------------").newLine();
+        out.append(" x   | P(x)  |  x - μ   |  (x - μ)² | (x - μ)² * P(x)").newLine();
+        out.append("-----|-------|----------|-----------|-----------------").newLine();
 
-        double[] xValues = distribution.getXValues();
-        double[] pValues = distribution.getPValues();
         double mu = distribution.getExpectedValue(); // Get the calculated E(X)
-        double varianceSum = 0; // Recalculate sum for printing steps
 
         for (int i = 0; i < distribution.getSize(); i++) {
-            double x = xValues[i];
-            double p = pValues[i];
+            double x = distribution.getX(i);
+            double p = distribution.getP(i);
             double deviation = x - mu;                 // (x - μ)
             double deviationSq = deviation * deviation; // (x - μ)²
             double term = deviationSq * p;             // (x - μ)² * P(x)
-            varianceSum += term; // Summing up for the final line
-
-            System.out.println(
-                    String.format(" %.0f", x) + "   | " +
-                            df2.format(p) + "  | " +
-                            String.format("% .2f", deviation) + "   | " + // % .2f adds space for positive sign
-                            df4.format(deviationSq) + "  | " +
-                            df5.format(term)
-            );
+
+            out.append(' ').appendFixed(x, 0, PRINTF).append("   | ")
+                    .appendFixed(p, 2, DF).append("  | ");
+            if (!(deviation < 0 || Double.doubleToRawLongBits(deviation) == Long.MIN_VALUE)) {
+                out.append(' '); // Like "% .2f", a space where the minus sign would go
+            }
+            out.appendFixed(deviation, 2, PRINTF).append("   | ")
+                    .appendFixed(deviationSq, 4, DF).append("  | ")
+                    .appendFixed(term, 5, DF).newLine();
         }
-        System.out.println("---------------------------------------------------------------------");
+        out.append("---------------------------------------------------------------------").newLine();
         // Use the calculated value from distribution for final sum consistency
-        System.out.println(" Σ [(x - μ)² * P(x)] = " + df4.format(distribution.getVariance()));
-        System.out.println("Variance Var(X) = σ² = " + df4.format(distribution.getVariance()));
-        System.out.println("---------------------------------------------------------------------");
+        out.append(" Σ [(x - μ)² * P(x)] = ").appendFixed(distribution.getVariance(), 4, DF).newLine();
+        out.append("Variance Var(X) = σ² = ").appendFixed(distribution.getVariance(), 4, DF).newLine();
+        out.append("---------------------------------------------------------------------").newLine();
     }
 
-    /**
-     * Prints the calculated Standard Deviation.
-     */
-    public void printStandardDeviation() {
-        double varianceValue = distribution.getVariance(); // Ensure variance is calculated
+    private void writeStandardDeviation(ReportWriter out) throws IOException {
+        double varianceValue = distribution.getVariance();
         double stdDevValue = distribution.getStandardDeviation();
-        System.out.println("\nStandard Deviation σ = √" + df4.format(varianceValue) + " = " + df2.format(stdDevValue));
-        System.out.println("---------------------------------------------------------------------");
+        out.append("\nStandard Deviation σ = √").appendFixed(varianceValue, 4, DF)
+                .append(" = ").appendFixed(stdDevValue, 2, DF).newLine();
+        out.append("---------------------------------------------------------------------").newLine();
+    }
+
+    // --- Machine-readable formats ---
+
+    private void writeCsv(ReportWriter out) throws IOException {
+        out.append("x,p,x_times_p,deviation,deviation_squared,weighted_squared_deviation").newLine();
+        double mu = distribution.getExpectedValue();
+        for (int i = 0; i < distribution.getSize(); i++) {
+            double x = distribution.getX(i);
+            double p = distribution.getP(i);
+            double deviation = x - mu;
+            double deviationSq = deviation * deviation;
+            out.append(x).append(',').append(p).append(',').append(x * p).append(',')
+                    .append(deviation).append(',').append(deviationSq).append(',')
+                    .append(deviationSq * p).newLine();
+        }
+    }
+
+    private void writeJson(ReportWriter out) throws IOException {
+        double mu = distribution.getExpectedValue();
+        out.append("{\"expectedValue\":").appendJsonNumber(mu)
+                .append(",\"variance\":").appendJsonNumber(distribution.getVariance())
+                .append(",\"standardDeviation\":").appendJsonNumber(distribution.getStandardDeviation())
+                .append(",\"rows\":[").newLine();
+        for (int i = 0; i < distribution.getSize(); i++) {
+            double x = distribution.getX(i);
+            double p = distribution.getP(i);
+            double deviation = x - mu;
+            double deviationSq = deviation * deviation;
+            out.append("{\"x\":").appendJsonNumber(x)
+                    .append(",\"p\":").appendJsonNumber(p)
+                    .append(",\"xTimesP\":").appendJsonNumber(x * p)
+                    .append(",\"deviation\":").appendJsonNumber(deviation)
+                    .append(",\"deviationSquared\":").appendJsonNumber(deviationSq)
+                    .append(",\"weightedSquaredDeviation\":").appendJsonNumber(deviationSq * p)
+                    .append(i + 1 < distribution.getSize() ? "}," : "}").newLine();
+        }
+        out.append("]}").newLine();
     }
 
     /**
-     * Prints all calculation reports.
+     * Renders a section to System.out in one go.
      */
-    public void printFullReport() {
-        printExpectedValueCalculation();
-        printVarianceCalculation();
-        printStandardDeviation();
+    private void print(Section section) {
+        try {
+            ReportWriter out = new ReportWriter(System.out);
+            section.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Section {
+        void writeTo(ReportWriter out) throws IOException;
     }
 }
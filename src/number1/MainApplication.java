@@ -1,5 +1,7 @@
 package number1;
 
+import common.DiscreteProbabilityDistribution;
+
 /**
  * Main class to demonstrate the calculation and reporting
  * of expected value and variance for a discrete random variable.
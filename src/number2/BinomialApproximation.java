@@ -0,0 +1,352 @@
+package number2;
+
+/**
+ * Answers P(X=k), P(X <= k) and P(X > k) for X ~ Binomial(n, p) without building a table,
+ * using the cheapest approximation whose error bound meets the caller's tolerance:
+ * <ul>
+ *   <li>{@link Method#NORMAL}: the normal distribution with continuity correction.
+ *       The Berry-Esseen theorem (constant 0.4748, Shevtsova 2011) bounds every CDF value
+ *       by 0.4748 (p^2 + q^2) / sqrt(n p q), and a P(X=k) value by twice that.</li>
+ *   <li>{@link Method#POISSON}: Poisson(n*r) for r = min(p, 1-p), mirrored when p > 0.5.
+ *       By Barbour and Hall (1984) no probability of any event is off by more than
+ *       (1 - e^(-n r)) r, a sharper form of Le Cam's bound n r^2.</li>
+ *   <li>{@link Method#SADDLE_POINT}: Loader's saddle-point form of the pmf (see
+ *       {@link BinomialMath#logProbability(int, int, double)}), essentially exact.</li>
+ * </ul>
+ * Normal queries cost O(1), and so do Poisson and saddle-point pmf values. Their CDF values
+ * sum the pmf from k into the nearer tail with the ratio recurrence, stopping once the rest
+ * of the tail is provably negligible: a handful of steps in the tails, O(sqrt(n p q)) near
+ * the centre. That is still independent of n and far cheaper than a table of n + 1 entries.
+ */
+public final class BinomialApproximation {
+
+    /**
+     * The approximation in use, in the order they are tried.
+     */
+    public enum Method {
+        NORMAL,
+        POISSON,
+        SADDLE_POINT
+    }
+
+    /** Error bound reported for the saddle-point method (observed errors are around 1e-14). */
+    public static final double SADDLE_POINT_ERROR = 1e-12;
+
+    // Berry-Esseen constant for identically distributed summands (Shevtsova 2011)
+    private static final double BERRY_ESSEEN = 0.4748;
+    private static final double LN_SQRT_2PI = 0.5 * Math.log(2 * Math.PI);
+    // Relative size at which the rest of a tail sum no longer changes the result
+    private static final double TAIL_EPSILON = 1e-17;
+
+    private final int n;
+    private final double p;
+    private final double tolerance;
+    private final Method method;
+    private final double errorBound;
+
+    // Poisson: approximates Y = X, or Y = n - X when p > 0.5
+    private final boolean mirrored;
+    private final double lambda;
+
+    // Normal
+    private final double mean;
+    private final double sd;
+
+    /**
+     * Chooses the approximation for Binomial(n, p).
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @param tolerance The largest acceptable absolute error of any returned probability.
+     *                  If no method can guarantee it, the saddle-point method is used
+     *                  and {@link #getErrorBound()} tells what it achieves.
+     * @throws IllegalArgumentException if n < 0, p is outside [0, 1] or tolerance is not positive.
+     */
+    public BinomialApproximation(int n, double p, double tolerance) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
+        }
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive. Found: " + tolerance);
+        }
+        this.n = n;
+        this.p = p;
+        this.tolerance = tolerance;
+        double q = 1.0 - p;
+        this.mirrored = p > 0.5;
+        this.lambda = n * (mirrored ? q : p);
+        this.mean = n * p;
+        this.sd = Math.sqrt(n * p * q);
+
+        double normalBound = normalBound(n, p);
+        double poissonBound = poissonBound(n, p);
+        if (normalBound <= tolerance) {
+            this.method = Method.NORMAL;
+            this.errorBound = normalBound;
+        } else if (poissonBound <= tolerance) {
+            this.method = Method.POISSON;
+            this.errorBound = poissonBound;
+        } else {
+            this.method = Method.SADDLE_POINT;
+            this.errorBound = SADDLE_POINT_ERROR;
+        }
+    }
+
+    /**
+     * Berry-Esseen bound on a P(X=k) value from the continuity-corrected normal approximation
+     * (twice the bound on CDF values, since it is the difference of two of them).
+     */
+    static double normalBound(int n, double p) {
+        double q = 1.0 - p;
+        double npq = n * p * q;
+        if (!(npq > 0.0)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 2 * BERRY_ESSEEN * (p * p + q * q) / Math.sqrt(npq);
+    }
+
+    /**
+     * Barbour-Hall bound on the total variation distance between Binomial(n, r) and Poisson(n r).
+     */
+    static double poissonBound(int n, double p) {
+        double r = Math.min(p, 1.0 - p);
+        if (n == 0 || r == 0.0) {
+            return 0.0;
+        }
+        return -Math.expm1(-n * r) * r;
+    }
+
+    // --- Queries ---
+
+    /**
+     * Approximates P(X=k).
+     *
+     * @param k The number of successes.
+     * @return P(X=k), within getErrorBound(); 0 for k outside [0, n].
+     */
+    public double probability(int k) {
+        if (k < 0 || k > n) {
+            return 0.0;
+        }
+        switch (method) {
+            case NORMAL:
+                return normalCdf((k + 0.5 - mean) / sd) - normalCdf((k - 0.5 - mean) / sd);
+            case POISSON:
+                return poissonProbability(mirrored ? n - k : k);
+            default:
+                return Math.exp(BinomialMath.logProbability(n, k, p));
+        }
+    }
+
+    /**
+     * Approximates P(X <= k).
+     *
+     * @param k The number of successes.
+     * @return P(X <= k), within getErrorBound().
+     */
+    public double cdf(int k) {
+        if (k < 0) {
+            return 0.0;
+        }
+        if (k >= n) {
+            return 1.0;
+        }
+        switch (method) {
+            case NORMAL:
+                return normalCdf((k + 0.5 - mean) / sd);
+            case POISSON:
+                // P(n - Y <= k) = P(Y >= n - k) when mirrored
+                return mirrored ? poissonTail(n - k - 1, true) : poissonTail(k, false);
+            default:
+                return saddlePointTail(k, false);
+        }
+    }
+
+    /**
+     * Approximates P(X > k) directly, so small upper tails keep their accuracy.
+     *
+     * @param k The number of successes.
+     * @return P(X > k), within getErrorBound().
+     */
+    public double survival(int k) {
+        if (k < 0) {
+            return 1.0;
+        }
+        if (k >= n) {
+            return 0.0;
+        }
+        switch (method) {
+            case NORMAL:
+                return normalCdf((mean - k - 0.5) / sd);
+            case POISSON:
+                return mirrored ? poissonTail(n - k - 1, false) : poissonTail(k, true);
+            default:
+                return saddlePointTail(k, true);
+        }
+    }
+
+    // --- Saddle point ---
+
+    /**
+     * P(X <= k) or P(X > k). Sums the pmf away from the mode, from k down (lower tail)
+     * or from k+1 up (upper tail), whichever side of the mode k lies on, and returns
+     * the complement when the other side was asked for.
+     */
+    private double saddlePointTail(int k, boolean upper) {
+        if (p == 0.0 || p == 1.0) {
+            int point = (p == 0.0) ? 0 : n;
+            boolean atMost = point <= k;
+            return (atMost != upper) ? 1.0 : 0.0;
+        }
+        double q = 1.0 - p;
+        int mode = BinomialMath.modeOf(n, p);
+        double sum;
+        boolean summedUpper;
+        if (k < mode) {
+            // P(j-1) / P(j) = j q / ((n - j + 1) p), shrinking as j falls
+            double term = Math.exp(BinomialMath.logProbability(n, k, p));
+            sum = term;
+            for (int j = k; j > 0 && term > 0.0; j--) {
+                double ratio = (j * q) / ((n - j + 1) * p);
+                term *= ratio;
+                sum += term;
+                if (term * ratio < sum * TAIL_EPSILON * (1 - ratio)) {
+                    break; // The rest is below term * ratio / (1 - ratio)
+                }
+            }
+            summedUpper = false;
+        } else {
+            // P(j+1) / P(j) = (n - j) p / ((j + 1) q), shrinking as j grows
+            double term = Math.exp(BinomialMath.logProbability(n, k + 1, p));
+            sum = term;
+            for (int j = k + 1; j < n && term > 0.0; j++) {
+                double ratio = ((n - j) * p) / ((j + 1) * q);
+                term *= ratio;
+                sum += term;
+                if (term * ratio < sum * TAIL_EPSILON * (1 - ratio)) {
+                    break;
+                }
+            }
+            summedUpper = true;
+        }
+        sum = Math.min(sum, 1.0);
+        return (summedUpper == upper) ? sum : 1.0 - sum;
+    }
+
+    // --- Poisson ---
+
+    /**
+     * Poisson(lambda) pmf in Loader's form, accurate for any lambda and y.
+     */
+    private double poissonProbability(int y) {
+        if (lambda == 0.0) {
+            return (y == 0) ? 1.0 : 0.0;
+        }
+        if (y == 0) {
+            return Math.exp(-lambda);
+        }
+        return Math.exp(-BinomialMath.stirlingError(y) - BinomialMath.deviance(y, lambda)
+                - LN_SQRT_2PI - 0.5 * Math.log(y));
+    }
+
+    /**
+     * P(Y <= y) or P(Y > y) for Y ~ Poisson(lambda), summed into the nearer tail like
+     * the saddle-point CDF.
+     */
+    private double poissonTail(int y, boolean upper) {
+        if (y < 0) {
+            return upper ? 1.0 : 0.0;
+        }
+        double sum;
+        boolean summedUpper;
+        if (y < lambda) {
+            // P(j-1) / P(j) = j / lambda
+            double term = poissonProbability(y);
+            sum = term;
+            for (int j = y; j > 0 && term > 0.0; j--) {
+                double ratio = j / lambda;
+                term *= ratio;
+                sum += term;
+                if (term * ratio < sum * TAIL_EPSILON * (1 - ratio)) {
+                    break;
+                }
+            }
+            summedUpper = false;
+        } else {
+            // P(j+1) / P(j) = lambda / (j + 1)
+            double term = poissonProbability(y + 1);
+            sum = term;
+            for (int j = y + 1; term > 0.0; j++) {
+                double ratio = lambda / (j + 1);
+                term *= ratio;
+                sum += term;
+                if (term * ratio < sum * TAIL_EPSILON * (1 - ratio)) {
+                    break;
+                }
+            }
+            summedUpper = true;
+        }
+        sum = Math.min(sum, 1.0);
+        return (summedUpper == upper) ? sum : 1.0 - sum;
+    }
+
+    // --- Normal ---
+
+    /**
+     * Standard normal CDF from Marsaglia's Taylor series, absolute error about 1e-15;
+     * beyond |z| = 8.5 the result is 0 or 1 to that accuracy.
+     */
+    static double normalCdf(double z) {
+        if (z < -8.5) {
+            return 0.0;
+        }
+        if (z > 8.5) {
+            return 1.0;
+        }
+        // Phi(z) = 1/2 + phi(z) (z + z^3/3 + z^5/(3*5) + ...)
+        double sum = z;
+        double term = z;
+        double z2 = z * z;
+        for (int i = 3; ; i += 2) {
+            term *= z2 / i;
+            double next = sum + term;
+            if (next == sum) {
+                break;
+            }
+            sum = next;
+        }
+        return 0.5 + sum * Math.exp(-0.5 * z2 - LN_SQRT_2PI);
+    }
+
+    // --- Getters ---
+
+    public int getN() {
+        return n;
+    }
+
+    public double getP() {
+        return p;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @return The approximation chosen for the tolerance.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return A bound on the absolute error of any value this object returns. At most the
+     *         tolerance, unless no method could meet it (then the saddle-point bound).
+     */
+    public double getErrorBound() {
+        return errorBound;
+    }
+}
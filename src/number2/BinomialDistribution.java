@@ -1,5 +1,11 @@
 package number2;
 
+import common.CumulativeSums;
+import common.IndexedDoubleConsumer;
+import common.LogLinearHistogram;
+import common.Metrics;
+
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 
 /**
@@ -8,9 +14,26 @@ import java.util.Arrays;
  */
 public class BinomialDistribution {
 
+    /**
+     * How the probability table is generated.
+     */
+    public enum TableMode {
+        /** Evaluates C(n, k) * p^k * q^(n-k) for every k. O(n^2), overflows past n of about 1030. */
+        DIRECT,
+        /** Walks outward from the mode with the log-space ratio recurrence. O(n), safe for any n. */
+        LOG_RECURRENCE
+    }
+
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram CONSTRUCT_NANOS = Metrics.histogram("binomial.construct.nanos");
+    private static final LogLinearHistogram CUMULATIVE_NANOS = Metrics.histogram("binomial.cumulative.nanos");
+    private static final LogLinearHistogram SIZES = Metrics.histogram("binomial.size.entries");
+
     private final int n; // Number of trials
     private final double p; // Probability of success
     private final double[] probabilities; // Stores P(X=0), P(X=1), ..., P(X=n)
+    private volatile CumulativeSums cumulative; // Built once, on the first cumulative query
+    private final Object cumulativeLock = new Object();
 
     /**
      * Creates a BinomialDistribution instance.
@@ -20,15 +43,37 @@ public class BinomialDistribution {
      * @throws IllegalArgumentException if n < 0 or p is outside [0, 1].
      */
     public BinomialDistribution(int n, double p) {
+        this(n, p, TableMode.DIRECT);
+    }
+
+    /**
+     * Creates a BinomialDistribution instance using the given table generation mode.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @param mode How to generate the probability table (see {@link TableMode}).
+     * @throws IllegalArgumentException if n < 0, p is outside [0, 1] or mode is null.
+     */
+    public BinomialDistribution(int n, double p, TableMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Table mode cannot be null.");
+        }
         if (n < 0) {
             throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
         }
-        if (p < 0.0 || p > 1.0) {
+        if (!(p >= 0.0 && p <= 1.0)) {
             throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
         }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
         this.n = n;
         this.p = p;
-        this.probabilities = calculateAllProbabilities();
+        this.probabilities = (mode == TableMode.LOG_RECURRENCE)
+                ? BinomialMath.calculateAllProbabilities(n, p)
+                : calculateAllProbabilities();
+        if (Metrics.ENABLED) {
+            CONSTRUCT_NANOS.recordSince(start);
+            SIZES.record(probabilities.length);
+        }
     }
 
     /**
@@ -75,6 +120,93 @@ public class BinomialDistribution {
         return Arrays.copyOf(probabilities, probabilities.length);
     }
 
+    /**
+     * Returns a read-only view of the probabilities, index `k` holds P(X=k).
+     * The view shares the internal array, only the small buffer object is new.
+     *
+     * @return A read-only DoubleBuffer over P(X=0), ..., P(X=n).
+     */
+    public DoubleBuffer getProbabilityBuffer() {
+        return DoubleBuffer.wrap(probabilities).asReadOnlyBuffer();
+    }
+
+    /**
+     * Visits every probability without copying the table.
+     *
+     * @param action Receives (k, P(X=k)) for k = 0 to n.
+     */
+    public void forEach(IndexedDoubleConsumer action) {
+        for (int k = 0; k < probabilities.length; k++) {
+            action.accept(k, probabilities[k]);
+        }
+    }
+
+    // --- Cumulative queries ---
+
+    /**
+     * Calculates the cumulative distribution function P(X <= k).
+     * The first cumulative query builds the prefix sums once, after that this is O(1).
+     *
+     * @param k The number of successes.
+     * @return P(X <= k), 0 for k < 0 and 1 for k >= n.
+     */
+    public double cdf(int k) {
+        // The prefix sum over the whole table can miss 1 by rounding, the full table is exactly 1
+        return (k >= n) ? 1.0 : cumulative().cumulativeAt(k);
+    }
+
+    /**
+     * Calculates the survival function P(X > k) in O(1).
+     * Small upper tails are read from suffix sums, not computed as 1 - P(X <= k).
+     *
+     * @param k The number of successes.
+     * @return P(X > k), 0 for k >= n.
+     */
+    public double survival(int k) {
+        return cumulative().survivalAt(k);
+    }
+
+    /**
+     * Calculates P(a <= X <= b) in O(1).
+     *
+     * @param a Lower end of the range (inclusive).
+     * @param b Upper end of the range (inclusive).
+     * @return The probability of the range, 0 if a > b.
+     */
+    public double rangeProbability(int a, int b) {
+        return cumulative().rangeSum(a, b);
+    }
+
+    /**
+     * Calculates the quantile (inverse CDF) by binary search: the smallest k with P(X <= k) >= u.
+     *
+     * @param u A probability level in [0, 1].
+     * @return The quantile k.
+     * @throws IllegalArgumentException if u is outside [0, 1].
+     */
+    public int quantile(double u) {
+        return cumulative().quantileIndex(u);
+    }
+
+    private CumulativeSums cumulative() {
+        CumulativeSums c = cumulative;
+        if (c == null) {
+            // Double-checked: threads arriving during the build wait for it instead of building another
+            synchronized (cumulativeLock) {
+                c = cumulative;
+                if (c == null) {
+                    long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+                    c = new CumulativeSums(probabilities);
+                    if (Metrics.ENABLED) {
+                        CUMULATIVE_NANOS.recordSince(start);
+                    }
+                    cumulative = c;
+                }
+            }
+        }
+        return c;
+    }
+
     /**
      * Calculates the sum of all probabilities (should be close to 1.0).
      * Useful for verification.
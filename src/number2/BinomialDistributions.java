@@ -0,0 +1,238 @@
+package number2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Factory and cache for shared BinomialDistribution instances keyed by (n, p).
+ * BinomialDistribution is immutable, so one instance can safely be handed to every caller.
+ * Tables are built with {@link BinomialDistribution.TableMode#LOG_RECURRENCE}.
+ *
+ * The cache is bounded by the total size of the cached probability tables and evicts
+ * the least recently used entry first. Concurrent lookups of the same missing key
+ * compute the table only once, the other callers wait for that result.
+ */
+public final class BinomialDistributions {
+
+    /** Default bound on the total size of the cached tables (64 MiB). */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final BinomialDistributions SHARED = new BinomialDistributions(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, BinomialDistribution> entries =
+            new LinkedHashMap<>(16, 0.75f, true); // Access order, eldest = least recently used
+    private long cachedBytes = 0; // Guarded by `entries`
+    private final ConcurrentHashMap<Key, CompletableFuture<BinomialDistribution>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a separate cache. Most callers should use {@link #of(int, double)} instead.
+     *
+     * @param maxBytes Bound on the total size of the cached probability tables (must be positive).
+     * @throws IllegalArgumentException if maxBytes is not positive.
+     */
+    public BinomialDistributions(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size (maxBytes) must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shared BinomialDistribution for (n, p) from the process-wide cache.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @return A shared, immutable distribution.
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1] (or NaN).
+     */
+    public static BinomialDistribution of(int n, double p) {
+        return SHARED.get(n, p);
+    }
+
+    /**
+     * @return The process-wide cache used by {@link #of(int, double)}, e.g. to read its counters.
+     */
+    public static BinomialDistributions shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the cached distribution for (n, p), computing it on a miss.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @return A shared, immutable distribution.
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1] (or NaN).
+     */
+    public BinomialDistribution get(int n, double p) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
+        }
+        Key key = new Key(n, p);
+        BinomialDistribution cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        // Single flight: only the thread that registers the future computes the table
+        CompletableFuture<BinomialDistribution> future = new CompletableFuture<>();
+        CompletableFuture<BinomialDistribution> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            waits.increment(); // Neither a hit nor a miss: shares another caller's computation
+            return await(running);
+        }
+        try {
+            // The table may have been stored between our lookup and registering the future
+            cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                cached = new BinomialDistribution(n, p, BinomialDistribution.TableMode.LOG_RECURRENCE);
+                store(key, cached);
+            }
+            future.complete(cached);
+            return cached;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e); // Waiting callers see the same error, nothing is cached
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private BinomialDistribution lookup(Key key) {
+        synchronized (entries) {
+            return entries.get(key); // Also moves the entry to the most recently used end
+        }
+    }
+
+    private void store(Key key, BinomialDistribution distribution) {
+        long size = sizeOf(distribution);
+        if (size > maxBytes) {
+            return; // Would evict everything else and still not fit, hand it out uncached
+        }
+        synchronized (entries) {
+            if (entries.putIfAbsent(key, distribution) != null) {
+                return;
+            }
+            cachedBytes += size;
+            Iterator<Map.Entry<Key, BinomialDistribution>> eldest = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                BinomialDistribution evicted = eldest.next().getValue();
+                eldest.remove();
+                cachedBytes -= sizeOf(evicted);
+                evictions.increment();
+            }
+        }
+    }
+
+    private static BinomialDistribution await(CompletableFuture<BinomialDistribution> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Size of the probability table held by a distribution, n+1 doubles.
+     */
+    private static long sizeOf(BinomialDistribution distribution) {
+        return (distribution.getN() + 1L) * Double.BYTES;
+    }
+
+    /**
+     * Removes all cached distributions. The counters are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    // --- Statistics ---
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The lookups that found the table being built by another caller and waited for it.
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Cache key. Compares p by its bit pattern, with -0.0 folded into 0.0.
+     * DistributionServer groups a batch's requests by the same key.
+     */
+    static final class Key {
+        private final int n;
+        private final long pBits;
+
+        Key(int n, double p) {
+            this.n = n;
+            this.pBits = Double.doubleToLongBits(p + 0.0); // -0.0 + 0.0 == +0.0
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return n == other.n && pBits == other.pBits;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * n + Long.hashCode(pBits);
+        }
+    }
+}
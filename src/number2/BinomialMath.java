@@ -1,13 +1,114 @@
 package number2;
 
+import common.CompensatedSum;
+import common.LogLinearHistogram;
+import common.Metrics;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Utility class containing static methods for binomial calculations.
+ * Coefficients and single probabilities come in three precisions (see {@link Precision}):
+ * the original double products, log-space evaluation that never overflows, and exact
+ * big-number arithmetic.
  */
 public final class BinomialMath { // final class - not meant to be subclassed
 
+    /**
+     * How {@link #calculateCoefficient(int, int, Precision)} and
+     * {@link #calculateProbability(int, int, double, Precision)} evaluate their result.
+     */
+    public enum Precision {
+        /** Running double product. Fastest for small n, but overflows past about C(1030, 515). */
+        FAST,
+        /** Log-space evaluation via Stirling/log-gamma terms. Never overflows; ~1e-13 relative error. */
+        LOG,
+        /** Exact BigInteger coefficient from its prime factorisation, rounded once at the end. */
+        EXACT
+    }
+
+    // Below this log-weight, Math.exp() underflows to 0 (smallest subnormal is ~4.9e-324)
+    static final double MIN_LOG_DOUBLE = -745.2;
+
+    private static final double LN_2PI = Math.log(2 * Math.PI);
+
+    // Stirling error terms for n <= 15, where the asymptotic series is not yet accurate enough
+    private static final double[] SMALL_STIRLING_ERROR = new double[16];
+
+    static {
+        double factorial = 1.0; // n! is exact in a double up to 22!
+        for (int n = 1; n < SMALL_STIRLING_ERROR.length; n++) {
+            factorial *= n;
+            SMALL_STIRLING_ERROR[n] = Math.log(factorial) - (n + 0.5) * Math.log(n) + n - 0.5 * LN_2PI;
+        }
+    }
+
+    // Enough digits for EXACT probabilities to round correctly to a double
+    private static final MathContext EXACT_TO_DOUBLE = new MathContext(25);
+
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram FAST_NANOS = Metrics.histogram("binomial.math.probability.fast.nanos");
+    private static final LogLinearHistogram LOG_NANOS = Metrics.histogram("binomial.math.probability.log.nanos");
+    private static final LogLinearHistogram EXACT_NANOS = Metrics.histogram("binomial.math.probability.exact.nanos");
+    private static final LogLinearHistogram TABLE_NANOS = Metrics.histogram("binomial.math.table.nanos");
+
     // Private constructor to prevent instantiation of utility class
     private BinomialMath() {}
 
+    /**
+     * Calculates C(n, k) with the chosen precision.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @param precision How to evaluate it.
+     * @return The binomial coefficient C(n, k) (Infinity once it exceeds the double range),
+     *         or 0 if inputs are invalid.
+     */
+    public static double calculateCoefficient(int n, int k, Precision precision) {
+        switch (precision) {
+            case LOG:
+                return Math.exp(logCoefficient(n, k));
+            case EXACT:
+                return exactCoefficient(n, k).doubleValue();
+            default:
+                return calculateCoefficient(n, k);
+        }
+    }
+
+    /**
+     * Calculates P(X=k) with the chosen precision. LOG and EXACT stay accurate for any n,
+     * while FAST returns NaN once C(n, k) overflows.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @param p Probability of success in a single trial (0 <= p <= 1).
+     * @param precision How to evaluate it.
+     * @return The binomial probability P(X=k), or 0 if inputs are invalid.
+     */
+    public static double calculateProbability(int n, int k, double p, Precision precision) {
+        if (precision == Precision.FAST) {
+            return calculateProbability(n, k, p); // Records its own timing
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        double result;
+        if (precision == Precision.LOG) {
+            result = Math.exp(logProbability(n, k, p));
+        } else if (k < 0 || k > n || n < 0 || !(p >= 0.0 && p <= 1.0)) {
+            result = 0.0; // Invalid input
+        } else {
+            result = exactProbability(n, k, new BigDecimal(p), EXACT_TO_DOUBLE).doubleValue();
+        }
+        if (Metrics.ENABLED) {
+            (precision == Precision.LOG ? LOG_NANOS : EXACT_NANOS).recordSince(start);
+        }
+        return result;
+    }
+
     /**
      * Calculates the binomial coefficient C(n, k) = n! / (k! * (n-k)!).
      * Uses a numerically stable method to avoid large intermediate factorial values.
@@ -49,7 +150,18 @@ public final class BinomialMath { // final class - not meant to be subclassed
      * @return The binomial probability P(X=k), or 0 if inputs are invalid.
      */
     public static double calculateProbability(int n, int k, double p) {
-        if (k < 0 || k > n || n < 0 || p < 0.0 || p > 1.0) {
+        if (!Metrics.ENABLED) {
+            return directProbability(n, k, p);
+        }
+        long start = System.nanoTime();
+        double result = directProbability(n, k, p);
+        FAST_NANOS.recordSince(start);
+        return result;
+    }
+
+    // C(n, k) * p^k * q^(n-k) as running double products, see calculateProbability(int, int, double)
+    private static double directProbability(int n, int k, double p) {
+        if (k < 0 || k > n || n < 0 || !(p >= 0.0 && p <= 1.0)) {
             return 0.0; // Invalid input
         }
 
@@ -71,4 +183,327 @@ public final class BinomialMath { // final class - not meant to be subclassed
 
         return coefficient * probSuccessTerm * probFailureTerm;
     }
+
+    // --- Log-space evaluation ---
+
+    /**
+     * Calculates log(n!) = lgamma(n + 1): exactly rounded factorials up to 15!, then
+     * Stirling's formula with the Stirling error series.
+     *
+     * @param n A non-negative integer.
+     * @return log(n!).
+     * @throws IllegalArgumentException if n < 0.
+     */
+    public static double logFactorial(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Factorial argument cannot be negative.");
+        }
+        if (n < 2) {
+            return 0.0;
+        }
+        return (n + 0.5) * Math.log(n) - n + 0.5 * LN_2PI + stirlingError(n);
+    }
+
+    /**
+     * Calculates log C(n, k) without forming the coefficient, so it works for any n.
+     * The large n log n terms are combined analytically before evaluation, which keeps
+     * the result accurate to a few ulps instead of losing digits to cancellation.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @return log C(n, k), or -Infinity (log 0) if inputs are invalid.
+     */
+    public static double logCoefficient(int n, int k) {
+        if (k < 0 || k > n || n < 0) {
+            return Double.NEGATIVE_INFINITY; // Invalid input
+        }
+        if (k == 0 || k == n) {
+            return 0.0;
+        }
+        double fraction = (double) k / n;
+        double correction = stirlingError(n) - stirlingError(k) - stirlingError(n - k);
+        return correction - 0.5 * (LN_2PI + Math.log(k) + Math.log1p(-fraction))
+                - k * Math.log(fraction) - (n - k) * Math.log1p(-fraction);
+    }
+
+    /**
+     * Calculates log P(X=k) with Loader's saddle-point form, as used by R's dbinom:
+     * the Stirling errors of n, k and n-k plus two deviance terms bd0 that are evaluated
+     * by a series when k is close to n*p. Relative accuracy is ~1e-14 even for n in the
+     * billions, where log C(n, k) and k log p are each huge and nearly cancel.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @param p Probability of success in a single trial (0 <= p <= 1).
+     * @return log P(X=k), or -Infinity (log 0) if inputs are invalid.
+     */
+    public static double logProbability(int n, int k, double p) {
+        if (k < 0 || k > n || n < 0 || !(p >= 0.0 && p <= 1.0)) {
+            return Double.NEGATIVE_INFINITY; // Invalid input
+        }
+        double q = 1.0 - p;
+        if (p == 0.0) {
+            return (k == 0) ? 0.0 : Double.NEGATIVE_INFINITY;
+        }
+        if (q == 0.0) {
+            return (k == n) ? 0.0 : Double.NEGATIVE_INFINITY;
+        }
+        if (k == 0) {
+            // n log q, via bd0 when q is close to 1 and log(q) would lose digits
+            return (n == 0) ? 0.0 : (p < 0.1) ? -deviance(n, n * q) - n * p : n * Math.log(q);
+        }
+        if (k == n) {
+            return (q < 0.1) ? -deviance(n, n * p) - n * q : n * Math.log(p);
+        }
+        double correction = stirlingError(n) - stirlingError(k) - stirlingError(n - k)
+                - deviance(k, n * p) - deviance(n - k, n * q);
+        double logScale = LN_2PI + Math.log(k) + Math.log1p(-(double) k / n);
+        return correction - 0.5 * logScale;
+    }
+
+    /**
+     * The Stirling error log(n!) - [(n + 1/2) log n - n + log(2 pi)/2].
+     */
+    static double stirlingError(int n) {
+        if (n < SMALL_STIRLING_ERROR.length) {
+            return SMALL_STIRLING_ERROR[n];
+        }
+        // 1/(12n) - 1/(360n^3) + 1/(1260n^5) - 1/(1680n^7) + 1/(1188n^9), fewer terms as n grows
+        final double s0 = 1.0 / 12, s1 = 1.0 / 360, s2 = 1.0 / 1260, s3 = 1.0 / 1680, s4 = 1.0 / 1188;
+        double nn = (double) n * n;
+        if (n > 500) {
+            return (s0 - s1 / nn) / n;
+        }
+        if (n > 80) {
+            return (s0 - (s1 - s2 / nn) / nn) / n;
+        }
+        if (n > 35) {
+            return (s0 - (s1 - (s2 - s3 / nn) / nn) / nn) / n;
+        }
+        return (s0 - (s1 - (s2 - (s3 - s4 / nn) / nn) / nn) / nn) / n;
+    }
+
+    /**
+     * Loader's deviance term bd0(x, m) = x log(x/m) + m - x, computed without
+     * cancellation when x is close to m.
+     */
+    static double deviance(double x, double m) {
+        if (Math.abs(x - m) < 0.1 * (x + m)) {
+            // bd0 = (x-m) v + 2x sum_{j>=1} v^(2j+1) / (2j+1), with v = (x-m)/(x+m)
+            double v = (x - m) / (x + m);
+            double sum = (x - m) * v;
+            if (Math.abs(sum) < Double.MIN_NORMAL) {
+                return sum;
+            }
+            double term = 2 * x * v;
+            v = v * v;
+            for (int j = 1; j < 1000; j++) {
+                term *= v;
+                double next = sum + term / (2 * j + 1);
+                if (next == sum) {
+                    return next;
+                }
+                sum = next;
+            }
+        }
+        return x * Math.log(x / m) + m - x;
+    }
+
+    // --- Exact evaluation ---
+
+    /**
+     * Calculates C(n, k) exactly. By Legendre's formula (equivalently, Kummer's theorem)
+     * a prime r divides C(n, k) exactly sum_i floor(n/r^i) - floor(k/r^i) - floor((n-k)/r^i)
+     * times, so the coefficient is assembled from a prime sieve up to n, with the prime
+     * powers multiplied in a balanced tree to keep the big multiplications even-sized.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @return C(n, k) as an exact integer, or 0 if inputs are invalid.
+     */
+    public static BigInteger exactCoefficient(int n, int k) {
+        if (k < 0 || k > n || n < 0) {
+            return BigInteger.ZERO; // Invalid input
+        }
+        if (k > n / 2) {
+            k = n - k;
+        }
+        if (k == 0) {
+            return BigInteger.ONE;
+        }
+        // Sieve of Eratosthenes over the odd numbers; index i stands for 2i+1
+        boolean[] composite = new boolean[n / 2 + 1];
+        List<BigInteger> factors = new ArrayList<>();
+        long pending = 1; // Small prime powers are multiplied as longs until they would overflow
+        for (int prime = 2; prime <= n; prime = (prime == 2) ? 3 : prime + 2) {
+            if (prime > 2) {
+                if (composite[prime / 2]) {
+                    continue;
+                }
+                for (long multiple = (long) prime * prime; multiple <= n; multiple += 2L * prime) {
+                    composite[(int) (multiple / 2)] = true;
+                }
+            }
+            // Legendre: exponent of prime in n! / (k! (n-k)!)
+            int exponent = 0;
+            for (long power = prime; power <= n; power *= prime) {
+                exponent += (int) (n / power - k / power - (n - k) / power);
+            }
+            for (int e = 0; e < exponent; e++) {
+                if (pending > Long.MAX_VALUE / prime) {
+                    factors.add(BigInteger.valueOf(pending));
+                    pending = 1;
+                }
+                pending *= prime;
+            }
+        }
+        factors.add(BigInteger.valueOf(pending));
+        return product(factors, 0, factors.size());
+    }
+
+    private static BigInteger product(List<BigInteger> factors, int from, int to) {
+        if (to - from == 1) {
+            return factors.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return product(factors, from, middle).multiply(product(factors, middle, to));
+    }
+
+    /**
+     * Calculates P(X=k) = C(n, k) p^k (1-p)^(n-k) in decimal arithmetic, with the exact
+     * coefficient. Pass p as a decimal (e.g. new BigDecimal("0.3")) to get the probability
+     * for exactly that p, or new BigDecimal(doubleValue) for the double's binary value.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param k Number of successes (0 <= k <= n).
+     * @param p Probability of success in a single trial (0 <= p <= 1).
+     * @param context Precision of the result; MathContext.UNLIMITED gives the exact value.
+     * @return P(X=k), or 0 if inputs are invalid.
+     */
+    public static BigDecimal exactProbability(int n, int k, BigDecimal p, MathContext context) {
+        if (k < 0 || k > n || n < 0 || p.signum() < 0 || p.compareTo(BigDecimal.ONE) > 0) {
+            return BigDecimal.ZERO; // Invalid input
+        }
+        BigDecimal q = BigDecimal.ONE.subtract(p);
+        BigInteger coefficient = exactCoefficient(n, k);
+        if (context.getPrecision() == 0) {
+            return new BigDecimal(coefficient).multiply(p.pow(k)).multiply(q.pow(n - k));
+        }
+        // Guard digits cover the rounding of the three intermediate results
+        MathContext working = new MathContext(context.getPrecision() + 10, context.getRoundingMode());
+        BigDecimal result = new BigDecimal(coefficient, working)
+                .multiply(p.pow(k, working), working)
+                .multiply(q.pow(n - k, working), working);
+        return result.round(context);
+    }
+
+    // --- Whole tables ---
+
+    /**
+     * Calculates the whole table P(X=0), ..., P(X=n) in a single O(n) sweep.
+     * Starts at the mode and walks outward with the ratio recurrence
+     * P(k+1)/P(k) = ((n-k)/(k+1)) * (p/q), accumulated in log space so neither
+     * the coefficient nor the powers of p and q are ever formed explicitly.
+     * This stays finite for any n, unlike {@link #calculateProbability(int, int, double)}
+     * which overflows to NaN once C(n, k) exceeds the double range (around n = 1030).
+     * Terms that underflow to 0 end the walk early, and the table is finally
+     * normalised so that it sums to 1.
+     *
+     * @param n Total number of trials (non-negative).
+     * @param p Probability of success in a single trial (0 <= p <= 1).
+     * @return An array of length n+1 where index `k` holds P(X=k).
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1].
+     */
+    public static double[] calculateAllProbabilities(int n, double p) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        double[] probs = new double[n + 1];
+        int[] bounds = new int[2];
+        double[] weights = calculateRelativeWeights(n, p, bounds);
+        double sum = CompensatedSum.of(weights);
+
+        // Normalise into place, the mode has weight 1 so the sum is always >= 1
+        int low = bounds[0];
+        for (int i = 0; i < weights.length; i++) {
+            probs[low + i] = weights[i] / sum;
+        }
+        if (Metrics.ENABLED) {
+            TABLE_NANOS.recordSince(start);
+        }
+        return probs;
+    }
+
+    /**
+     * Walks outward from the mode with the log-space ratio recurrence and returns the
+     * unnormalised weights w(k) = P(X=k) / P(X=mode) for every k whose weight does not
+     * underflow to 0. The walk therefore only touches O(sqrt(n*p*q)) terms.
+     *
+     * @param bounds Output array of length 2, receives the first and last k covered.
+     * @return The weights, where index `i` holds w(bounds[0] + i). The mode has weight 1.
+     */
+    static double[] calculateRelativeWeights(int n, double p, int[] bounds) {
+        // Degenerate cases: all the mass sits on a single point
+        if (p == 0.0 || p == 1.0) {
+            bounds[0] = bounds[1] = (p == 0.0) ? 0 : n;
+            return new double[] {1.0};
+        }
+
+        int mode = modeOf(n, p);
+        double logOdds = Math.log(p) - Math.log1p(-p); // log(p/q), log1p keeps q = 1-p precise
+
+        // Log-weights relative to the mode (log w(mode) = 0), stopping once exp() would give 0.
+        // Terms only get smaller moving away from the mode, so the first underflow ends each side.
+        double[] upper = new double[64];
+        int upperCount = 0;
+        double logW = 0.0;
+        for (int k = mode; k < n; k++) {
+            logW += Math.log((double) (n - k) / (k + 1)) + logOdds;
+            if (logW < MIN_LOG_DOUBLE) {
+                break;
+            }
+            if (upperCount == upper.length) {
+                upper = Arrays.copyOf(upper, upperCount * 2);
+            }
+            upper[upperCount++] = logW;
+        }
+        double[] lower = new double[64];
+        int lowerCount = 0;
+        logW = 0.0;
+        for (int k = mode; k > 0; k--) {
+            logW += Math.log((double) k / (n - k + 1)) - logOdds;
+            if (logW < MIN_LOG_DOUBLE) {
+                break;
+            }
+            if (lowerCount == lower.length) {
+                lower = Arrays.copyOf(lower, lowerCount * 2);
+            }
+            lower[lowerCount++] = logW;
+        }
+
+        // Lay the two sides out in increasing k around the mode and convert to weights
+        double[] weights = new double[lowerCount + 1 + upperCount];
+        for (int i = 0; i < lowerCount; i++) {
+            weights[lowerCount - 1 - i] = Math.exp(lower[i]);
+        }
+        weights[lowerCount] = 1.0;
+        for (int i = 0; i < upperCount; i++) {
+            weights[lowerCount + 1 + i] = Math.exp(upper[i]);
+        }
+        bounds[0] = mode - lowerCount;
+        bounds[1] = mode + upperCount;
+        return weights;
+    }
+
+    /**
+     * Returns the mode of Binomial(n, p), i.e. floor((n+1)p) capped at n.
+     */
+    static int modeOf(int n, double p) {
+        int mode = (int) Math.floor((n + 1.0) * p); // n + 1 overflows int at Integer.MAX_VALUE
+        return Math.min(mode, n);
+    }
 }
@@ -1,14 +1,30 @@
 package number2;
 
-import java.text.DecimalFormat;
+import common.LogLinearHistogram;
+import common.Metrics;
+import common.ReportFormat;
+import common.ReportWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Responsible for printing the details of a BinomialDistribution.
+ * The table is rendered through a ReportWriter, which formats the rows into one buffer
+ * and writes it out in large chunks, so even n = 10^6 prints quickly.
  */
 public class BinomialReporter {
 
+    private static final int PROBABILITY_DECIMALS = 6; // Same as DecimalFormat("0.000000")
+
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram RENDER_NANOS = Metrics.histogram("report.binomial.nanos");
+    private static final LongAdder ROWS = Metrics.counter("report.rows");
+
     private final BinomialDistribution distribution;
-    private final DecimalFormat df = new DecimalFormat("0.000000"); // Format for probabilities
 
     public BinomialReporter(BinomialDistribution distribution) {
         if (distribution == null) {
@@ -21,22 +37,97 @@ public class BinomialReporter {
      * Prints the distribution table (X vs P(X=x)).
      */
     public void printDistributionTable() {
-        System.out.println("\nDistribusi Probabilitas Variabel Acak X (Jumlah Muka/Head)");
-        System.out.println("Jumlah Pelemparan (n) = " + distribution.getN());
-        System.out.println("Probabilitas Head (p) = " + distribution.getP());
-        System.out.println("--------------------------------------------------");
-        System.out.println(" X (Jumlah Head) |   P(X = x)   "); // Header tabel
-        System.out.println("-----------------|--------------");
-
-        double[] probabilities = distribution.getAllProbabilities(); // Get the probabilities
+        try {
+            writeDistributionTable(System.out, ReportFormat.TEXT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the distribution table to a character destination.
+     *
+     * @param out The destination, e.g. a Writer or StringBuilder.
+     * @param format TEXT for the printed table, CSV or JSON for full-precision values.
+     * @throws IOException if the destination fails.
+     */
+    public void writeDistributionTable(Appendable out, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(out);
+        writeDistributionTable(writer, format);
+        writer.flush();
+    }
+
+    /**
+     * Writes the distribution table to a byte channel, encoded as UTF-8.
+     *
+     * @param channel The destination, e.g. a FileChannel.
+     * @param format TEXT for the printed table, CSV or JSON for full-precision values.
+     * @throws IOException if the channel fails.
+     */
+    public void writeDistributionTable(WritableByteChannel channel, ReportFormat format) throws IOException {
+        ReportWriter writer = new ReportWriter(channel);
+        writeDistributionTable(writer, format);
+        writer.flush();
+    }
+
+    /**
+     * Renders the distribution table into a writer, leaving it to the caller to flush.
+     *
+     * @param out The writer.
+     * @param format The output format.
+     * @throws IOException if the writer's destination fails.
+     */
+    public void writeDistributionTable(ReportWriter out, ReportFormat format) throws IOException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        switch (format) {
+            case TEXT:
+                writeText(out);
+                break;
+            case CSV:
+                out.append("x,probability").newLine();
+                for (int x = 0; x <= distribution.getN(); x++) {
+                    out.append(x).append(',').append(distribution.getProbability(x)).newLine();
+                }
+                break;
+            case JSON:
+                out.append("{\"n\":").append(distribution.getN())
+                        .append(",\"p\":").appendJsonNumber(distribution.getP())
+                        .append(",\"totalProbability\":").appendJsonNumber(distribution.getTotalProbabilitySum())
+                        .append(",\"rows\":[").newLine();
+                for (int x = 0; x <= distribution.getN(); x++) {
+                    out.append("{\"x\":").append(x)
+                            .append(",\"probability\":").appendJsonNumber(distribution.getProbability(x))
+                            .append(x < distribution.getN() ? "}," : "}").newLine();
+                }
+                out.append("]}").newLine();
+                break;
+        }
+        if (Metrics.ENABLED) {
+            RENDER_NANOS.recordSince(start);
+            ROWS.add(distribution.getN() + 1L);
+        }
+    }
+
+    private void writeText(ReportWriter out) throws IOException {
+        out.append("\nDistribusi Probabilitas Variabel Acak X (Jumlah Muka/Head)").newLine();
+        out.append("Jumlah Pelemparan (n) = ").append(distribution.getN()).newLine();
+        out.append("Probabilitas Head (p) = ").append(distribution.getP()).newLine();
+        out.append("--------------------------------------------------").newLine();
+        out.append(" X (Jumlah Head) |   P(X = x)   ").newLine(); // Header tabel
+        out.append("-----------------|--------------").newLine();
+
         for (int x = 0; x <= distribution.getN(); x++) {
-            // String.format aligns columns better than printf in some terminals
-            System.out.printf(" %-15d | %s%n", x, df.format(probabilities[x]));
+            // " 3               | 0.312500", x left-aligned in 15 columns
+            out.append(' ').appendLeftAligned(x, 15).append(" | ")
+                    .appendFixed(distribution.getProbability(x), PROBABILITY_DECIMALS, RoundingMode.HALF_EVEN)
+                    .newLine();
         }
 
-        System.out.println("--------------------------------------------------");
+        out.append("--------------------------------------------------").newLine();
         // Verification: Print the sum of probabilities
-        System.out.println("Total Probabilitas = " + df.format(distribution.getTotalProbabilitySum()));
-        System.out.println("--------------------------------------------------");
+        out.append("Total Probabilitas = ")
+                .appendFixed(distribution.getTotalProbabilitySum(), PROBABILITY_DECIMALS, RoundingMode.HALF_EVEN)
+                .newLine();
+        out.append("--------------------------------------------------").newLine();
     }
-}
\ No newline at end of file
+}
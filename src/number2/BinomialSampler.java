@@ -0,0 +1,293 @@
+package number2;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates Binomial(n, p) random variates without building the probability table.
+ * Works with r = min(p, 1-p) and mirrors the result when p > 0.5. When n*r is small it
+ * uses inversion (walking up the pmf from 0, a handful of steps on average); otherwise it
+ * uses the BTPE rejection algorithm of Kachitvichyanukul and Schmeiser (1988), whose expected
+ * cost per draw does not grow with n. Both need O(1) memory, so n can go up to Integer.MAX_VALUE.
+ *
+ * A sampler only holds constants derived from (n, p) and is safe to share between threads
+ * as long as each thread uses its own RandomGenerator.
+ */
+public final class BinomialSampler {
+
+    /** Below this value of n * min(p, 1-p) inversion is faster than BTPE. */
+    static final double INVERSION_THRESHOLD = 30.0;
+
+    private final int n; // Number of trials
+    private final double p; // Probability of success
+    private final boolean mirrored; // Sampling n - X with r = 1-p, since p > 0.5
+    private final double r; // min(p, 1-p)
+    private final double q; // 1 - r
+    private final boolean inversion;
+
+    // Inversion constants
+    private final double q0; // P(X=0) = q^n
+    private final double bound; // Restart point guarding against rounding in the pmf walk
+
+    // BTPE constants: a triangle in the centre, parallelograms beside it and exponential tails
+    private final int m; // Mode
+    private final double xm, xl, xr, c, lambdaL, lambdaR, p1, p2, p3, p4, nrq;
+
+    /**
+     * Creates a sampler for Binomial(n, p).
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1].
+     */
+    public BinomialSampler(int n, double p) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
+        }
+        this.n = n;
+        this.p = p;
+        this.mirrored = p > 0.5;
+        this.r = mirrored ? 1.0 - p : p;
+        this.q = 1.0 - r;
+        this.inversion = n * r < INVERSION_THRESHOLD;
+
+        if (inversion) {
+            double mean = n * r;
+            this.q0 = Math.exp(n * Math.log1p(-r));
+            this.bound = Math.min(n, mean + 10.0 * Math.sqrt(mean * q + 1));
+            this.m = 0;
+            this.xm = xl = xr = c = lambdaL = lambdaR = p1 = p2 = p3 = p4 = nrq = 0.0;
+        } else {
+            this.q0 = bound = 0.0;
+            double fm = n * r + r;
+            this.m = (int) Math.floor(fm);
+            this.nrq = n * r * q;
+            this.p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+            this.xm = m + 0.5;
+            this.xl = xm - p1;
+            this.xr = xm + p1;
+            this.c = 0.134 + 20.5 / (15.3 + m);
+            double a = (fm - xl) / (fm - xl * r);
+            this.lambdaL = a * (1.0 + a / 2.0);
+            a = (xr - fm) / (xr * q);
+            this.lambdaR = a * (1.0 + a / 2.0);
+            this.p2 = p1 * (1.0 + 2.0 * c);
+            this.p3 = p2 + c / lambdaL;
+            this.p4 = p3 + c / lambdaR;
+        }
+    }
+
+    /**
+     * Draws a single variate when (n, p) changes from draw to draw.
+     * Costs the O(1) constant setup of a new sampler, no table is ever built.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @param random The generator to draw from.
+     * @return A Binomial(n, p) variate.
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1].
+     */
+    public static int sample(int n, double p, RandomGenerator random) {
+        return new BinomialSampler(n, p).sample(random);
+    }
+
+    /**
+     * Draws one Binomial(n, p) variate.
+     *
+     * @param random The generator to draw from.
+     * @return The number of successes, between 0 and n.
+     */
+    public int sample(RandomGenerator random) {
+        if (r == 0.0) {
+            return mirrored ? n : 0; // p is exactly 0 or 1
+        }
+        int y = inversion ? sampleInversion(random) : sampleBtpe(random);
+        return mirrored ? n - y : y;
+    }
+
+    /**
+     * Fills the array with independent Binomial(n, p) variates.
+     *
+     * @param out The array to fill.
+     * @param random The generator to draw from.
+     */
+    public void fill(int[] out, RandomGenerator random) {
+        fill(out, 0, out.length, random);
+    }
+
+    /**
+     * Fills out[from] .. out[to - 1] with independent Binomial(n, p) variates.
+     * The branch on the algorithm is taken once per call, not once per draw.
+     *
+     * @param out The array to fill.
+     * @param from First index to fill (inclusive).
+     * @param to Last index to fill (exclusive).
+     * @param random The generator to draw from.
+     * @throws IndexOutOfBoundsException if the range is outside the array.
+     */
+    public void fill(int[] out, int from, int to, RandomGenerator random) {
+        if (from < 0 || to > out.length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") outside array of length " + out.length);
+        }
+        if (r == 0.0) {
+            Arrays.fill(out, from, to, mirrored ? n : 0);
+        } else if (inversion) {
+            for (int i = from; i < to; i++) {
+                out[i] = sampleInversion(random);
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                out[i] = sampleBtpe(random);
+            }
+        }
+        if (mirrored && r != 0.0) {
+            for (int i = from; i < to; i++) {
+                out[i] = n - out[i];
+            }
+        }
+    }
+
+    /**
+     * Walks up the pmf from P(X=0) using P(x)/P(x-1) = ((n-x+1)/x) * (r/q) until the
+     * uniform is used up. Expected number of steps is about n*r + 1.
+     */
+    private int sampleInversion(RandomGenerator random) {
+        int x = 0;
+        double px = q0;
+        double u = random.nextDouble();
+        while (u > px) {
+            x++;
+            if (x > bound) {
+                // Rounding left a sliver of u unaccounted for, start over with a fresh uniform
+                x = 0;
+                px = q0;
+                u = random.nextDouble();
+            } else {
+                u -= px;
+                px = ((n - x + 1) * r * px) / (x * q);
+            }
+        }
+        return x;
+    }
+
+    /**
+     * BTPE: proposes from a hat made of a triangle, two parallelograms and two exponential
+     * tails, accepting most proposals with a cheap squeeze test and the rest by comparing
+     * against the pmf ratio f(y)/f(m) (explicitly near the mode, via Stirling further out).
+     */
+    private int sampleBtpe(RandomGenerator random) {
+        while (true) {
+            double u = random.nextDouble() * p4;
+            double v = random.nextDouble();
+            int y;
+            if (u <= p1) {
+                // Triangular region, always accepted
+                return (int) Math.floor(xm - p1 * v + u);
+            } else if (u <= p2) {
+                // Parallelograms
+                double x = xl + (u - p1) / c;
+                v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+                if (v > 1.0) {
+                    continue;
+                }
+                y = (int) Math.floor(x);
+            } else if (u <= p3) {
+                // Left exponential tail
+                if (v == 0.0) {
+                    continue;
+                }
+                double x = Math.floor(xl + Math.log(v) / lambdaL);
+                if (x < 0) {
+                    continue;
+                }
+                y = (int) x;
+                v = v * (u - p2) * lambdaL;
+            } else {
+                // Right exponential tail
+                if (v == 0.0) {
+                    continue;
+                }
+                double x = Math.floor(xr - Math.log(v) / lambdaR);
+                if (x > n) {
+                    continue;
+                }
+                y = (int) x;
+                v = v * (u - p3) * lambdaR;
+            }
+
+            int k = Math.abs(y - m);
+            if (k <= 20 || k >= nrq / 2.0 - 1) {
+                // Explicit evaluation of f(y)/f(m) by the recurrence
+                double s = r / q;
+                double a = s * (n + 1);
+                double f = 1.0;
+                if (m < y) {
+                    for (int i = m + 1; i <= y; i++) {
+                        f *= (a / i - s);
+                    }
+                } else if (m > y) {
+                    for (int i = y + 1; i <= m; i++) {
+                        f /= (a / i - s);
+                    }
+                }
+                if (v <= f) {
+                    return y;
+                }
+                continue;
+            }
+
+            // Squeeze on log(f(y)/f(m)) using the normal approximation and its error bound
+            double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+            double t = -(double) k * k / (2 * nrq);
+            double logV = Math.log(v);
+            if (logV < t - rho) {
+                return y;
+            }
+            if (logV > t + rho) {
+                continue;
+            }
+
+            // Final comparison with Stirling's approximation of the factorials
+            double x1 = y + 1;
+            double f1 = m + 1;
+            double z = n + 1.0 - m;
+            double w = n - y + 1.0;
+            double bound = xm * Math.log(f1 / x1)
+                    + (n - m + 0.5) * Math.log(z / w)
+                    + (y - m) * Math.log(w * r / (x1 * q))
+                    + stirlingCorrection(f1) + stirlingCorrection(z)
+                    + stirlingCorrection(x1) + stirlingCorrection(w);
+            if (logV <= bound) {
+                return y;
+            }
+        }
+    }
+
+    /**
+     * The series 1/(12x) - 1/(360x^3) + ... used by BTPE's final acceptance test.
+     */
+    private static double stirlingCorrection(double x) {
+        double x2 = x * x;
+        return (13680. - (462. - (132. - (99. - 140. / x2) / x2) / x2) / x2) / x / 166320.;
+    }
+
+    // --- Getters ---
+
+    public int getN() {
+        return n;
+    }
+
+    public double getP() {
+        return p;
+    }
+
+    /**
+     * @return true if draws use inversion, false if they use BTPE.
+     */
+    public boolean usesInversion() {
+        return inversion;
+    }
+}
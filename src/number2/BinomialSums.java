@@ -0,0 +1,89 @@
+package number2;
+
+import common.Convolution;
+import common.DiscreteProbabilityDistribution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for distributions of sums of independent binomial variables with
+ * different parameters, built on {@link Convolution}.
+ */
+public final class BinomialSums {
+
+    // Bernoulli trials are first combined in blocks this large by the O(block^2) recurrence,
+    // which is cheaper than pushing millions of two-entry tables through the convolution queue
+    private static final int BLOCK = 64;
+
+    // Private constructor to prevent instantiation of utility class
+    private BinomialSums() {}
+
+    /**
+     * Calculates the Poisson-binomial distribution: the number of successes in independent
+     * trials that each have their own probability of success. Blocks of trials are combined
+     * directly, and the block tables are then convolved shortest first (switching to the FFT
+     * as they grow), O(m log^2 m) in total for m trials.
+     *
+     * @param p The probability of success of each trial (each between 0 and 1).
+     * @return The distribution of the number of successes, over 0 .. p.length.
+     * @throws IllegalArgumentException if p is null or empty, or a probability is outside [0, 1].
+     */
+    public static DiscreteProbabilityDistribution poissonBinomial(double... p) {
+        if (p == null || p.length == 0) {
+            throw new IllegalArgumentException("At least one trial is needed.");
+        }
+        List<double[]> tables = new ArrayList<>(p.length / BLOCK + 1);
+        for (int start = 0; start < p.length; start += BLOCK) {
+            int end = Math.min(start + BLOCK, p.length);
+            // P(S = j) after each trial: add the trial's success to every count, from the top down
+            double[] table = new double[end - start + 1];
+            table[0] = 1.0;
+            for (int i = start; i < end; i++) {
+                double pi = p[i];
+                if (!(pi >= 0.0 && pi <= 1.0)) {
+                    throw new IllegalArgumentException("Probability (p) must be between 0 and 1. Found: " + pi);
+                }
+                int trials = i - start + 1;
+                for (int j = trials; j > 0; j--) {
+                    table[j] = table[j] * (1.0 - pi) + table[j - 1] * pi;
+                }
+                table[0] *= 1.0 - pi;
+            }
+            tables.add(table);
+        }
+        return Convolution.fromDense(Convolution.convolveAll(tables), 0);
+    }
+
+    /**
+     * Calculates the distribution of X1 + ... + Xm for independent Xi ~ Binomial(n[i], p[i]).
+     * Each term contributes only its truncated window (see {@link TruncatedBinomialDistribution}),
+     * so the convolutions work on O(sqrt(n p q)) entries per term instead of n + 1; at most
+     * 1e-15 of probability mass per term is discarded.
+     *
+     * @param n The number of trials of each term (non-negative).
+     * @param p The probability of success of each term (between 0 and 1).
+     * @return The distribution of the sum, over the integers its support can reach.
+     * @throws IllegalArgumentException if the arrays are null, empty or differ in length,
+     *                                  or a parameter is invalid.
+     */
+    public static DiscreteProbabilityDistribution sumOfBinomials(int[] n, double[] p) {
+        if (n == null || p == null) {
+            throw new IllegalArgumentException("Input arrays cannot be null.");
+        }
+        if (n.length != p.length) {
+            throw new IllegalArgumentException("n and p arrays must have the same length.");
+        }
+        if (n.length == 0) {
+            throw new IllegalArgumentException("Input arrays cannot be empty.");
+        }
+        List<double[]> tables = new ArrayList<>(n.length);
+        long offset = 0;
+        for (int i = 0; i < n.length; i++) {
+            TruncatedBinomialDistribution term = new TruncatedBinomialDistribution(n[i], p[i]);
+            tables.add(term.getWindowProbabilities());
+            offset += term.getLowerBound();
+        }
+        return Convolution.fromDense(Convolution.convolveAll(tables), offset);
+    }
+}
@@ -0,0 +1,265 @@
+package number2;
+
+import common.CompensatedSum;
+import common.DiscreteProbabilityDistribution;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Utility class for saving distribution tables to a compact binary file and mapping them
+ * back into memory with {@link FileChannel#map}, so a large table is usable immediately
+ * after opening: no parsing and no copy onto the heap.
+ *
+ * Layout (little-endian, every section 8-byte aligned):
+ * <pre>
+ *  offset  size  field
+ *       0     4  magic "JPSD"
+ *       4     2  format version (1)
+ *       6     1  kind: 1 = binomial, 2 = discrete
+ *       7     1  flags: bit 0 = x section present, bit 1 = CDF section present
+ *       8     4  n, number of trials (binomial) or 0
+ *      12     4  kLow, first stored k (binomial) or 0
+ *      16     4  count, number of stored entries
+ *      20     4  reserved (0)
+ *      24     8  p, probability of success (binomial) or NaN
+ *      32     8  discarded mass outside [kLow, kLow + count - 1]
+ *      40     8  CRC32C of everything after the header
+ *      48    16  reserved (0)
+ *      64        x values       (count doubles, discrete only, ascending)
+ *                probabilities  (count doubles)
+ *                CDF            (count doubles, optional, P(X <= value at index i))
+ * </pre>
+ */
+public final class DistributionFile {
+
+    static final int MAGIC = 0x4453504A; // "JPSD" read as a little-endian int
+    static final short VERSION = 1;
+    static final byte KIND_BINOMIAL = 1;
+    static final byte KIND_DISCRETE = 2;
+    static final byte FLAG_X = 1;
+    static final byte FLAG_CDF = 2;
+    static final int HEADER_BYTES = 64;
+    // A section is mapped in chunks of at most 2^27 doubles (1 GiB), below the 2 GiB limit of one mapping
+    static final int CHUNK_SHIFT = 27;
+    static final int CHUNK_DOUBLES = 1 << CHUNK_SHIFT;
+
+    // Private constructor to prevent instantiation of utility class
+    private DistributionFile() {}
+
+    // --- Writing ---
+
+    /**
+     * Saves a full binomial table (k = 0 to n).
+     *
+     * @param distribution The distribution to save.
+     * @param path The file to create or overwrite.
+     * @param includeCdf Whether to store the cumulative probabilities as well.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(BinomialDistribution distribution, Path path, boolean includeCdf) throws IOException {
+        int count = distribution.getN() + 1;
+        double[] cdf = null;
+        if (includeCdf) {
+            cdf = new double[count];
+            for (int k = 0; k < count; k++) {
+                cdf[k] = distribution.cdf(k);
+            }
+        }
+        // The read-only view streams the table straight into the file without copying it first
+        write(path, KIND_BINOMIAL, distribution.getN(), 0, distribution.getP(), 0.0,
+                null, distribution.getProbabilityBuffer(), wrap(cdf));
+    }
+
+    /**
+     * Saves the window [kLow, kHigh] of a truncated binomial distribution.
+     * The CDF section stores the cumulative probability within the window.
+     *
+     * @param distribution The distribution to save.
+     * @param path The file to create or overwrite.
+     * @param includeCdf Whether to store the cumulative probabilities as well.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(TruncatedBinomialDistribution distribution, Path path, boolean includeCdf)
+            throws IOException {
+        double[] probabilities = distribution.getWindowProbabilities();
+        double[] cdf = includeCdf ? CompensatedSum.prefixSums(probabilities) : null;
+        write(path, KIND_BINOMIAL, distribution.getN(), distribution.getLowerBound(), distribution.getP(),
+                distribution.getDiscardedMass(), null, DoubleBuffer.wrap(probabilities), wrap(cdf));
+    }
+
+    /**
+     * Saves a discrete distribution. The entries are stored sorted by x so the CDF
+     * section holds P(X <= x) and lookups by value can use binary search.
+     *
+     * @param distribution The distribution to save.
+     * @param path The file to create or overwrite.
+     * @param includeCdf Whether to store the cumulative probabilities as well.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(DiscreteProbabilityDistribution distribution, Path path, boolean includeCdf)
+            throws IOException {
+        int size = distribution.getSize();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(distribution.getX(i), distribution.getX(j)));
+        double[] x = new double[size];
+        double[] probabilities = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = distribution.getX(order[i]);
+            probabilities[i] = distribution.getP(order[i]);
+        }
+        double[] cdf = includeCdf ? CompensatedSum.prefixSums(probabilities) : null;
+        write(path, KIND_DISCRETE, 0, 0, Double.NaN, 0.0,
+                DoubleBuffer.wrap(x), DoubleBuffer.wrap(probabilities), wrap(cdf));
+    }
+
+    private static void write(Path path, byte kind, int n, int kLow, double p, double discardedMass,
+                              DoubleBuffer x, DoubleBuffer probabilities, DoubleBuffer cdf) throws IOException {
+        int count = probabilities.remaining();
+        byte flags = (byte) ((x != null ? FLAG_X : 0) | (cdf != null ? FLAG_CDF : 0));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Each section is mapped in chunks so no single mapping has to exceed 2 GiB
+            CRC32C checksum = new CRC32C();
+            long offset = HEADER_BYTES;
+            for (DoubleBuffer section : new DoubleBuffer[] {x, probabilities, cdf}) {
+                if (section == null) {
+                    continue;
+                }
+                for (int c = 0; c < chunkCount(count); c++) {
+                    int from = c << CHUNK_SHIFT;
+                    int length = Math.min(CHUNK_DOUBLES, count - from);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset,
+                            (long) length * Double.BYTES);
+                    buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+                            .put(section.slice(section.position() + from, length));
+                    checksum.update(buffer.rewind());
+                    buffer.force();
+                    offset += (long) length * Double.BYTES;
+                }
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putShort(4, VERSION);
+            header.put(6, kind);
+            header.put(7, flags);
+            header.putInt(8, n);
+            header.putInt(12, kLow);
+            header.putInt(16, count);
+            header.putDouble(24, p);
+            header.putDouble(32, discardedMass);
+            header.putLong(40, checksum.getValue());
+            header.force();
+        }
+    }
+
+    /**
+     * @return The number of chunks a section of `count` doubles is mapped in.
+     */
+    static int chunkCount(int count) {
+        return (int) (((long) count + CHUNK_DOUBLES - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static DoubleBuffer wrap(double[] values) {
+        return values == null ? null : DoubleBuffer.wrap(values);
+    }
+
+    // --- Reading ---
+
+    /**
+     * Maps a distribution file without reading its data. Use this on trusted files;
+     * see {@link #open(Path, boolean)} to verify the checksum.
+     *
+     * @param path The file to open.
+     * @return A distribution backed directly by the mapped file.
+     * @throws IOException if the file cannot be read or is not a distribution file.
+     */
+    public static MappedDistribution open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Maps a distribution file.
+     *
+     * @param path The file to open.
+     * @param verifyChecksum Whether to read all data once and compare it with the stored CRC32C.
+     * @return A distribution backed directly by the mapped file.
+     * @throws IOException if the file cannot be read, is not a distribution file,
+     *                     or (when verifying) its checksum does not match.
+     */
+    public static MappedDistribution open(Path path, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a distribution file (too short): " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a distribution file (bad magic): " + path);
+            }
+            if (header.getShort(4) != VERSION) {
+                throw new IOException("Unsupported distribution file version " + header.getShort(4) + ": " + path);
+            }
+            byte kind = header.get(6);
+            byte flags = header.get(7);
+            int count = header.getInt(16);
+            if ((kind != KIND_BINOMIAL && kind != KIND_DISCRETE) || count <= 0
+                    || (kind == KIND_DISCRETE) != ((flags & FLAG_X) != 0)) {
+                throw new IOException("Corrupt distribution file header: " + path);
+            }
+            long sectionBytes = (long) count * Double.BYTES;
+            int sections = 1 + ((flags & FLAG_X) != 0 ? 1 : 0) + ((flags & FLAG_CDF) != 0 ? 1 : 0);
+            if (fileSize != HEADER_BYTES + sections * sectionBytes) {
+                throw new IOException("Distribution file size does not match its header: " + path);
+            }
+
+            CRC32C checksum = new CRC32C();
+            MappedByteBuffer[][] mapped = new MappedByteBuffer[sections][];
+            for (int s = 0; s < sections; s++) {
+                mapped[s] = mapSection(channel, HEADER_BYTES + s * sectionBytes, count);
+                if (verifyChecksum) {
+                    for (MappedByteBuffer chunk : mapped[s]) {
+                        checksum.update(chunk.duplicate());
+                    }
+                }
+            }
+            if (verifyChecksum && checksum.getValue() != header.getLong(40)) {
+                throw new IOException("Distribution file checksum mismatch: " + path);
+            }
+
+            int s = 0;
+            MappedByteBuffer[] x = (flags & FLAG_X) != 0 ? mapped[s++] : null;
+            MappedByteBuffer[] probabilities = mapped[s++];
+            MappedByteBuffer[] cdf = (flags & FLAG_CDF) != 0 ? mapped[s] : null;
+            return new MappedDistribution(kind == KIND_BINOMIAL, header.getInt(8), header.getInt(12),
+                    header.getDouble(24), header.getDouble(32), count, x, probabilities, cdf);
+        }
+    }
+
+    /**
+     * Maps one section of `count` doubles as consecutive chunks of {@link #CHUNK_DOUBLES}.
+     */
+    private static MappedByteBuffer[] mapSection(FileChannel channel, long offset, int count) throws IOException {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount(count)];
+        for (int c = 0; c < chunks.length; c++) {
+            int length = Math.min(CHUNK_DOUBLES, count - (c << CHUNK_SHIFT));
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset + ((long) c << CHUNK_SHIFT) * Double.BYTES,
+                    (long) length * Double.BYTES);
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+}
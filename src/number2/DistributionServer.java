@@ -0,0 +1,559 @@
+package number2;
+
+import common.DiscreteProbabilityDistribution;
+import common.LogLinearHistogram;
+import common.Metrics;
+import common.Moments;
+import common.ReportWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-lived calculator service: answers distribution queries over a plain-text TCP protocol
+ * on the loopback interface, one request per line and one response line per request, in order.
+ * <pre>
+ *   PMF      binomial &lt;n&gt; &lt;p&gt; &lt;k&gt;        P(X=k)
+ *   CDF      binomial &lt;n&gt; &lt;p&gt; &lt;k&gt;        P(X &lt;= k)
+ *   QUANTILE binomial &lt;n&gt; &lt;p&gt; &lt;u&gt;        smallest k with P(X &lt;= k) &gt;= u
+ *   MOMENTS  binomial &lt;n&gt; &lt;p&gt;            mean, variance, skewness, excess kurtosis
+ *   PMF      discrete &lt;table&gt; &lt;x&gt;          the same four queries for an ad-hoc table,
+ *   CDF      discrete &lt;table&gt; &lt;x&gt;          written as x1:p1,x2:p2,... without spaces
+ *   QUANTILE discrete &lt;table&gt; &lt;u&gt;
+ *   MOMENTS  discrete &lt;table&gt;
+ *   PING                                  OK
+ *   QUIT                                  closes the connection
+ * </pre>
+ * A response is "OK" followed by the values, separated by spaces, or "ERR" followed by the
+ * reason. Numbers are printed like Double.toString, so they read back exactly.
+ *
+ * Every connection runs on its own virtual thread, so thousands of mostly idle clients cost
+ * little and a blocked read never holds a carrier thread. Requests that arrive together
+ * (pipelined lines already in the input buffer) are answered as one batch: the binomial
+ * tables the batch needs are looked up first, once per distinct (n, p), and the responses
+ * go out in a single write.
+ * Binomial PMF queries are evaluated directly in log space. CDF and QUANTILE use full tables
+ * from a {@link BinomialDistributions} cache shared by all connections, and discrete tables
+ * are kept in a small LRU keyed by their text, so repeated queries against the same
+ * distribution never rebuild it.
+ */
+public final class DistributionServer implements Closeable {
+
+    /** The port used when none is given. */
+    public static final int DEFAULT_PORT = 7070;
+
+    /**
+     * The largest n for CDF and QUANTILE with the default cache: a table of n + 1 doubles
+     * then takes at most a quarter of {@link BinomialDistributions#DEFAULT_MAX_BYTES}, so it
+     * is always cached and several of the largest tables fit at once. PMF and MOMENTS need
+     * no table and accept any n.
+     */
+    public static final int MAX_N = maxN(BinomialDistributions.DEFAULT_MAX_BYTES);
+
+    /** The longest request line read; longer lines are skipped and answered "ERR line too long". */
+    public static final int MAX_LINE_LENGTH = 65_536;
+
+    /** The most entries an ad-hoc discrete table may have. */
+    public static final int MAX_DISCRETE_ENTRIES = 4_096;
+
+    // Pipelined lines answered together before the responses are written out
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_DISCRETE_TABLES = 256;
+    private static final long MAX_DISCRETE_BYTES = 16L * 1024 * 1024; // Estimated, see sizeOf
+
+    // Recorded only when Metrics.ENABLED
+    private static final LogLinearHistogram REQUEST_NANOS = Metrics.histogram("server.request.nanos");
+    private static final LogLinearHistogram BATCH_LINES = Metrics.histogram("server.batch.lines");
+    private static final LongAdder CONNECTIONS = Metrics.counter("server.connections");
+    private static final LongAdder ERRORS = Metrics.counter("server.errors");
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptThread;
+    private final BinomialDistributions binomials;
+    private final int maxN; // MAX_N, scaled to the cache this server was given
+    // Access order, eldest = least recently used; bounded by MAX_DISCRETE_TABLES and MAX_DISCRETE_BYTES
+    private final Map<String, DiscreteProbabilityDistribution> discretes = new LinkedHashMap<>(16, 0.75f, true);
+    private long discreteBytes = 0; // Guarded by `discretes`
+
+    private DistributionServer(ServerSocket serverSocket, BinomialDistributions binomials) {
+        this.serverSocket = serverSocket;
+        this.binomials = binomials;
+        this.maxN = maxN(binomials.getMaxBytes());
+        this.acceptThread = Thread.ofVirtual().name("distribution-server-accept").unstarted(this::acceptLoop);
+    }
+
+    /**
+     * Starts a server on the loopback interface that caches binomial tables up to
+     * {@link BinomialDistributions#DEFAULT_MAX_BYTES}.
+     *
+     * @param port The port to listen on, or 0 for any free port (see getPort()).
+     * @return The running server.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static DistributionServer start(int port) throws IOException {
+        return start(port, new BinomialDistributions(BinomialDistributions.DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Starts a server on the loopback interface. CDF and QUANTILE accept n up to a quarter
+     * of the cache's budget in doubles, like {@link #MAX_N} does for the default cache.
+     *
+     * @param port The port to listen on, or 0 for any free port (see getPort()).
+     * @param binomials The cache the binomial tables are taken from.
+     * @return The running server.
+     * @throws IOException if the port cannot be bound.
+     * @throws IllegalArgumentException if binomials is null.
+     */
+    public static DistributionServer start(int port, BinomialDistributions binomials) throws IOException {
+        if (binomials == null) {
+            throw new IllegalArgumentException("Binomial cache cannot be null.");
+        }
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        DistributionServer server = new DistributionServer(socket, binomials);
+        server.acceptThread.start();
+        return server;
+    }
+
+    /**
+     * @return The largest n whose table takes at most a quarter of a cache of maxBytes.
+     */
+    private static int maxN(long maxBytes) {
+        return (int) Math.min(maxBytes / Double.BYTES / 4 - 1, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Blocks until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void await() throws InterruptedException {
+        acceptThread.join();
+    }
+
+    /**
+     * Stops accepting, closes every open connection and waits for their threads to end.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.close();
+    }
+
+    // --- Connections ---
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                if (serverSocket.isClosed()) {
+                    socket.close(); // close() may already have gone through openSockets
+                    return;
+                }
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // Closed
+            } catch (IOException e) {
+                System.err.println("Error: cannot accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        if (Metrics.ENABLED) {
+            CONNECTIONS.increment();
+        }
+        try (socket) {
+            LineReader in = new LineReader(socket.getInputStream());
+            ReportWriter out = new ReportWriter(Channels.newChannel(socket.getOutputStream()), StandardCharsets.US_ASCII);
+            Session session = new Session();
+            List<String> lines = new ArrayList<>();
+            List<String[]> requests = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                // Take everything that has already arrived, up to MAX_BATCH lines or a QUIT
+                lines.clear();
+                requests.clear();
+                boolean quit = false;
+                while (line != null) {
+                    if (line.trim().equalsIgnoreCase("QUIT")) {
+                        quit = true;
+                        break;
+                    }
+                    lines.add(line);
+                    requests.add(words(line));
+                    line = (lines.size() < MAX_BATCH && in.ready()) ? in.readLine() : null;
+                }
+                lookUpTables(requests, session);
+                for (int i = 0; i < lines.size(); i++) {
+                    long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+                    answer(lines.get(i), requests.get(i), session, out);
+                    if (Metrics.ENABLED) {
+                        REQUEST_NANOS.recordSince(start);
+                    }
+                }
+                out.flush();
+                if (Metrics.ENABLED) {
+                    BATCH_LINES.record(lines.size());
+                }
+                if (quit) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away or the server is closing, nothing left to answer
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /**
+     * Reads ASCII request lines like BufferedReader.readLine, but never holds more than
+     * MAX_LINE_LENGTH + 1 characters of one line: the rest of a longer line is read and
+     * dropped, and the returned prefix is too long for {@link #answer} to accept.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[128]; // Grows up to MAX_LINE_LENGTH + 1
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return The next line without its terminator, or null at the end of the stream.
+         */
+        String readLine() throws IOException {
+            int length = 0;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return (length == 0) ? null : text(length);
+                    }
+                }
+                byte b = buffer[position++];
+                if (b == '\n') {
+                    return text(length);
+                }
+                if (length <= MAX_LINE_LENGTH) {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, Math.min(2 * line.length, MAX_LINE_LENGTH + 1));
+                    }
+                    line[length++] = b;
+                }
+            }
+        }
+
+        /**
+         * @return Whether a read would not block, like BufferedReader.ready.
+         */
+        boolean ready() throws IOException {
+            return position < limit || in.available() > 0;
+        }
+
+        private String text(int length) {
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * The distributions a connection used last. Clients tend to send runs of queries
+     * against one distribution, and these skip the shared caches and their locks.
+     */
+    private static final class Session {
+        private BinomialDistribution binomial;
+        // The current batch's binomial tables, filled by lookUpTables
+        private final Map<BinomialDistributions.Key, BinomialDistribution> tables = new HashMap<>();
+        private String discreteText;
+        private DiscreteProbabilityDistribution discrete;
+    }
+
+    // --- Requests ---
+
+    /**
+     * @return The words of a request line, or null if the line is too long to answer.
+     */
+    private static String[] words(String line) {
+        return (line.length() > MAX_LINE_LENGTH) ? null : line.trim().split("\\s+");
+    }
+
+    /**
+     * Fetches the tables the batch's binomial CDF and QUANTILE requests need, one lookup per
+     * distinct (n, p), so requests that alternate between a few distributions take the shared
+     * cache's lock once per distribution and batch instead of once per line. Malformed requests
+     * are skipped here; answering them reports the error.
+     */
+    private void lookUpTables(List<String[]> requests, Session session) {
+        session.tables.clear();
+        for (String[] words : requests) {
+            if (words == null || words.length != 5 || !words[1].equalsIgnoreCase("binomial")
+                    || !(words[0].equalsIgnoreCase("CDF") || words[0].equalsIgnoreCase("QUANTILE"))) {
+                continue;
+            }
+            try {
+                int n = parseInt(words[2], "n");
+                double p = parseProbability(words[3], "p");
+                if (n >= 0 && n <= maxN) {
+                    session.tables.computeIfAbsent(new BinomialDistributions.Key(n, p), key -> binomial(n, p, session));
+                }
+            } catch (IllegalArgumentException e) {
+                // Answered as an error in order with the rest of the batch
+            }
+        }
+    }
+
+    /**
+     * Writes the response line to one request line.
+     *
+     * @param words The line split by {@link #words(String)}.
+     */
+    private void answer(String line, String[] words, Session session, ReportWriter out) throws IOException {
+        try {
+            if (words == null) {
+                throw new IllegalArgumentException("line too long");
+            }
+            String command = words[0].toUpperCase(Locale.ROOT);
+            if (command.equals("PING") && words.length == 1) {
+                out.append("OK").append('\n');
+                return;
+            }
+            if (words.length < 2) {
+                throw new IllegalArgumentException("Unknown request: " + line.trim());
+            }
+            String family = words[1].toLowerCase(Locale.ROOT);
+            if (family.equals("binomial")) {
+                answerBinomial(command, words, session, out);
+            } else if (family.equals("discrete")) {
+                answerDiscrete(command, words, session, out);
+            } else {
+                throw new IllegalArgumentException("Unknown distribution: " + words[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            if (Metrics.ENABLED) {
+                ERRORS.increment();
+            }
+            out.append("ERR ").append(String.valueOf(e.getMessage())).append('\n');
+        }
+    }
+
+    private void answerBinomial(String command, String[] words, Session session, ReportWriter out) throws IOException {
+        checkWordCount(words, command.equals("MOMENTS") ? 4 : 5);
+        int n = parseInt(words[2], "n");
+        double p = parseProbability(words[3], "p");
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        // Closed forms, no table needed
+        if (command.equals("MOMENTS")) {
+            double npq = n * p * (1 - p);
+            double skewness = (npq > 0) ? (1 - 2 * p) / Math.sqrt(npq) : Double.NaN;
+            double excessKurtosis = (npq > 0) ? (1 - 6 * p * (1 - p)) / npq : Double.NaN;
+            writeValues(out, n * p, npq, skewness, excessKurtosis);
+            return;
+        }
+        if (command.equals("PMF")) {
+            // 0 for k outside [0, n]
+            int k = parseInt(words[4], "k");
+            writeValues(out, BinomialMath.calculateProbability(n, k, p, BinomialMath.Precision.LOG));
+            return;
+        }
+        if (n > maxN) {
+            throw new IllegalArgumentException("Number of trials (n) above " + maxN + " is not served.");
+        }
+        BinomialDistribution distribution = session.tables.get(new BinomialDistributions.Key(n, p));
+        if (distribution == null) {
+            distribution = binomial(n, p, session); // Only if the lookup failed, to report its error here
+        }
+        switch (command) {
+            case "CDF":
+                writeValues(out, distribution.cdf(parseInt(words[4], "k")));
+                break;
+            case "QUANTILE":
+                int quantile = distribution.quantile(parseProbability(words[4], "u"));
+                out.append("OK ").append(quantile).append('\n');
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request: " + command);
+        }
+    }
+
+    private BinomialDistribution binomial(int n, double p, Session session) {
+        BinomialDistribution last = session.binomial;
+        if (last != null && last.getN() == n && Double.compare(last.getP(), p) == 0) {
+            return last;
+        }
+        session.binomial = binomials.get(n, p);
+        return session.binomial;
+    }
+
+    private void answerDiscrete(String command, String[] words, Session session, ReportWriter out) throws IOException {
+        checkWordCount(words, command.equals("MOMENTS") ? 3 : 4);
+        DiscreteProbabilityDistribution distribution = discrete(words[2], session);
+        switch (command) {
+            case "PMF":
+                double x = parseDouble(words[3], "x");
+                writeValues(out, distribution.rangeProbability(x, x));
+                break;
+            case "CDF":
+                writeValues(out, distribution.cdf(parseDouble(words[3], "x")));
+                break;
+            case "QUANTILE":
+                writeValues(out, distribution.quantile(parseProbability(words[3], "u")));
+                break;
+            case "MOMENTS":
+                Moments moments = distribution.getMoments();
+                writeValues(out, moments.getMean(), moments.getVariance(), moments.getSkewness(),
+                        moments.getExcessKurtosis());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request: " + command);
+        }
+    }
+
+    private DiscreteProbabilityDistribution discrete(String text, Session session) {
+        if (text.equals(session.discreteText)) {
+            return session.discrete;
+        }
+        DiscreteProbabilityDistribution distribution;
+        synchronized (discretes) {
+            distribution = discretes.get(text);
+        }
+        if (distribution == null) {
+            distribution = parseDiscrete(text);
+            store(text, distribution);
+        }
+        session.discreteText = text;
+        session.discrete = distribution;
+        return distribution;
+    }
+
+    private void store(String text, DiscreteProbabilityDistribution distribution) {
+        synchronized (discretes) {
+            if (discretes.putIfAbsent(text, distribution) != null) {
+                return;
+            }
+            discreteBytes += sizeOf(text, distribution);
+            Iterator<Map.Entry<String, DiscreteProbabilityDistribution>> eldest = discretes.entrySet().iterator();
+            while ((discretes.size() > MAX_DISCRETE_TABLES || discreteBytes > MAX_DISCRETE_BYTES) && eldest.hasNext()) {
+                Map.Entry<String, DiscreteProbabilityDistribution> evicted = eldest.next();
+                eldest.remove();
+                discreteBytes -= sizeOf(evicted.getKey(), evicted.getValue());
+            }
+        }
+    }
+
+    /**
+     * Estimated memory of a cached table: its text, plus the copies of x and p and the
+     * sorted values with their prefix and suffix sums, six doubles per entry.
+     */
+    private static long sizeOf(String text, DiscreteProbabilityDistribution distribution) {
+        return text.length() + 6L * Double.BYTES * distribution.getSize();
+    }
+
+    /**
+     * Parses "x1:p1,x2:p2,..." into a distribution with its cumulative sums already built.
+     *
+     * @throws IllegalArgumentException if the text is malformed, has more than
+     *                                  {@link #MAX_DISCRETE_ENTRIES} entries or is not a valid distribution.
+     */
+    static DiscreteProbabilityDistribution parseDiscrete(String text) {
+        String[] entries = text.split(",");
+        if (entries.length > MAX_DISCRETE_ENTRIES) {
+            throw new IllegalArgumentException("A table of " + entries.length + " entries exceeds "
+                    + MAX_DISCRETE_ENTRIES + " entries.");
+        }
+        double[] x = new double[entries.length];
+        double[] p = new double[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            int colon = entries[i].indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Table entries are written x:p. Found: " + entries[i]);
+            }
+            x[i] = parseDouble(entries[i].substring(0, colon), "x");
+            p[i] = parseDouble(entries[i].substring(colon + 1), "p");
+        }
+        return new DiscreteProbabilityDistribution(x, p, true);
+    }
+
+    private static void checkWordCount(String[] words, int expected) {
+        if (words.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " words, found " + words.length + ".");
+        }
+    }
+
+    private static int parseInt(String word, String name) {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number. Found: " + word);
+        }
+    }
+
+    private static double parseDouble(String word, String name) {
+        try {
+            return Double.parseDouble(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number. Found: " + word);
+        }
+    }
+
+    private static double parseProbability(String word, String name) {
+        double value = parseDouble(word, name);
+        if (!(value >= 0.0 && value <= 1.0)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1. Found: " + word);
+        }
+        return value;
+    }
+
+    private static void writeValues(ReportWriter out, double... values) throws IOException {
+        out.append("OK");
+        for (double value : values) {
+            out.append(' ').append(value);
+        }
+        out.append('\n');
+    }
+}
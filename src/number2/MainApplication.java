@@ -1,14 +1,20 @@
 package number2;
 
+import java.io.IOException;
 import java.util.InputMismatchException;
 import java.util.Scanner;
 
 /**
  * Main application class to get user input and display the binomial distribution.
+ * With "--serve [port]" it runs {@link DistributionServer} instead, until the process is stopped.
  */
 public class MainApplication {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args);
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         int n = -1; // Number of trials (K from user input)
         double p = 0.5; // Probability of success (Head for a fair coin)
@@ -46,4 +52,35 @@ public class MainApplication {
             scanner.close(); // Always close the scanner
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the distribution server on the port after "--serve", or the default port.
+     */
+    private static void serve(String[] args) {
+        int port = DistributionServer.DEFAULT_PORT;
+        if (args.length > 1) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Error: port must be a whole number. Found: " + args[1]);
+                return;
+            }
+        }
+        try {
+            DistributionServer server = DistributionServer.start(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }));
+            System.out.println("Distribution server listening on 127.0.0.1:" + server.getPort() + " (Ctrl+C to stop)");
+            server.await();
+        } catch (IOException e) {
+            System.err.println("Error: cannot start the server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
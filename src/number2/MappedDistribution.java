@@ -0,0 +1,271 @@
+package number2;
+
+import common.IndexedDoubleConsumer;
+
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * A distribution table read directly from a memory-mapped file written by {@link DistributionFile}.
+ * Nothing is parsed or copied when the file is opened; each query reads the mapped pages,
+ * which the operating system loads on first touch and shares between processes.
+ *
+ * Entries are addressed by index 0 .. getSize()-1. For a binomial table entry i is
+ * k = kLow + i; for a discrete table it is the i-th smallest x value.
+ * Each section is mapped in chunks of {@link DistributionFile#CHUNK_DOUBLES} entries, so
+ * tables larger than the 2 GiB limit of a single mapping can still be opened.
+ * The mapping is released by the garbage collector once this object is unreachable.
+ */
+public final class MappedDistribution {
+
+    private final boolean binomial;
+    private final int n;
+    private final int lowerBound;
+    private final double p;
+    private final double discardedMass;
+    private final int size;
+    private final DoubleBuffer[] xValues; // null for binomial tables
+    private final DoubleBuffer[] probabilities;
+    private final DoubleBuffer[] cdf; // null if the file has no CDF section
+
+    MappedDistribution(boolean binomial, int n, int lowerBound, double p, double discardedMass, int size,
+                       MappedByteBuffer[] xValues, MappedByteBuffer[] probabilities, MappedByteBuffer[] cdf) {
+        this.binomial = binomial;
+        this.n = n;
+        this.lowerBound = lowerBound;
+        this.p = p;
+        this.discardedMass = discardedMass;
+        this.size = size;
+        this.xValues = views(xValues);
+        this.probabilities = views(probabilities);
+        this.cdf = views(cdf);
+    }
+
+    private static DoubleBuffer[] views(MappedByteBuffer[] chunks) {
+        if (chunks == null) {
+            return null;
+        }
+        // Absolute get(int) on these views never touches their position, so sharing them is safe
+        DoubleBuffer[] views = new DoubleBuffer[chunks.length];
+        for (int c = 0; c < chunks.length; c++) {
+            views[c] = chunks[c].asDoubleBuffer().asReadOnlyBuffer();
+        }
+        return views;
+    }
+
+    /**
+     * Reads entry i of a section, across its chunks.
+     */
+    private static double get(DoubleBuffer[] chunks, int i) {
+        return chunks[i >>> DistributionFile.CHUNK_SHIFT].get(i & (DistributionFile.CHUNK_DOUBLES - 1));
+    }
+
+    // --- Description ---
+
+    /**
+     * @return true for a binomial table, false for a discrete one.
+     */
+    public boolean isBinomial() {
+        return binomial;
+    }
+
+    /**
+     * @return The number of trials n (binomial tables only, otherwise 0).
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return The probability of success p (binomial tables only, otherwise NaN).
+     */
+    public double getP() {
+        return p;
+    }
+
+    /**
+     * @return kLow, the k of entry 0 (binomial tables only, otherwise 0).
+     */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return kHigh, the k of the last entry (binomial tables only).
+     */
+    public int getUpperBound() {
+        return lowerBound + getSize() - 1;
+    }
+
+    /**
+     * @return The probability mass outside the stored entries (0 for complete tables).
+     */
+    public double getDiscardedMass() {
+        return discardedMass;
+    }
+
+    /**
+     * @return The number of stored entries.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Whether the file carries precomputed cumulative probabilities.
+     */
+    public boolean hasCdf() {
+        return cdf != null;
+    }
+
+    // --- Entries ---
+
+    /**
+     * @param i Entry index (0 <= i < getSize()).
+     * @return The value of entry i: k for binomial tables, x for discrete ones.
+     */
+    public double getValueAt(int i) {
+        return (xValues == null) ? lowerBound + checkIndex(i) : get(xValues, checkIndex(i));
+    }
+
+    /**
+     * @param i Entry index (0 <= i < getSize()).
+     * @return The probability of entry i.
+     */
+    public double getProbabilityAt(int i) {
+        return get(probabilities, checkIndex(i));
+    }
+
+    /**
+     * Gets P(X=k) from a binomial table.
+     * @param k The number of successes.
+     * @return P(X=k), or 0 if k is outside the stored entries.
+     * @throws IllegalStateException if this is not a binomial table.
+     */
+    public double getProbability(int k) {
+        requireBinomial();
+        int i = k - lowerBound;
+        if (i < 0 || i >= getSize()) {
+            return 0.0;
+        }
+        return get(probabilities, i);
+    }
+
+    /**
+     * @return A read-only view of the mapped probabilities, index `i` holding entry i.
+     * @throws IllegalStateException if the table spans more than one mapping
+     *                               (over {@link DistributionFile#CHUNK_DOUBLES} entries).
+     */
+    public DoubleBuffer getProbabilityBuffer() {
+        if (probabilities.length > 1) {
+            throw new IllegalStateException("A table of " + size + " entries spans " + probabilities.length
+                    + " mappings and has no single buffer view; use getProbabilityAt or forEach.");
+        }
+        return probabilities[0].duplicate();
+    }
+
+    /**
+     * Visits every stored probability.
+     *
+     * @param action Receives (i, probability of entry i).
+     */
+    public void forEach(IndexedDoubleConsumer action) {
+        for (int c = 0; c < probabilities.length; c++) {
+            DoubleBuffer chunk = probabilities[c];
+            int base = c << DistributionFile.CHUNK_SHIFT;
+            for (int j = 0; j < chunk.limit(); j++) {
+                action.accept(base + j, chunk.get(j));
+            }
+        }
+    }
+
+    // --- Cumulative queries (need the CDF section) ---
+
+    /**
+     * Reads P(X <= k) from a binomial table in O(1). For a truncated table the mass
+     * discarded below kLow is not included.
+     *
+     * @param k The number of successes.
+     * @return P(X <= k).
+     * @throws IllegalStateException if this is not a binomial table or has no CDF section.
+     */
+    public double cdf(int k) {
+        requireBinomial();
+        requireCdf();
+        int i = k - lowerBound;
+        if (i < 0) {
+            return 0.0;
+        }
+        return get(cdf, Math.min(i, getSize() - 1));
+    }
+
+    /**
+     * Reads P(X <= x) from a discrete table, binary searching the mapped x values.
+     *
+     * @param x The point to evaluate.
+     * @return P(X <= x).
+     * @throws IllegalStateException if this is not a discrete table or has no CDF section.
+     */
+    public double cdf(double x) {
+        if (binomial) {
+            throw new IllegalStateException("Use cdf(int) for binomial tables.");
+        }
+        requireCdf();
+        int low = 0;
+        int high = getSize(); // Search for the first index with a value > x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(xValues, mid) <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low == 0) ? 0.0 : get(cdf, low - 1);
+    }
+
+    /**
+     * Finds the smallest value whose cumulative probability reaches u, by binary search.
+     *
+     * @param u A probability level in [0, 1].
+     * @return k for binomial tables, x for discrete ones.
+     * @throws IllegalArgumentException if u is outside [0, 1].
+     * @throws IllegalStateException if the file has no CDF section.
+     */
+    public double quantile(double u) {
+        if (!(u >= 0.0 && u <= 1.0)) {
+            throw new IllegalArgumentException("Quantile level must be between 0 and 1. Found: " + u);
+        }
+        requireCdf();
+        int low = 0;
+        int high = getSize() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(cdf, mid) >= u) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return getValueAt(low);
+    }
+
+    private void requireBinomial() {
+        if (!binomial) {
+            throw new IllegalStateException("Not a binomial table.");
+        }
+    }
+
+    private void requireCdf() {
+        if (cdf == null) {
+            throw new IllegalStateException("The file has no CDF section.");
+        }
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= getSize()) {
+            throw new IndexOutOfBoundsException("Index " + i + " outside table of size " + getSize());
+        }
+        return i;
+    }
+}
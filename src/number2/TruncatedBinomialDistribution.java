@@ -0,0 +1,171 @@
+package number2;
+
+import common.CompensatedSum;
+import common.IndexedDoubleConsumer;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * A Binomial Distribution (n, p) that only stores its "effective support".
+ * For large n almost every entry of the full table underflows to 0, so this type keeps
+ * only the window [kLow, kHigh] outside of which the total probability is at most epsilon.
+ * Memory grows with O(sqrt(n*p*q)) instead of O(n).
+ */
+public class TruncatedBinomialDistribution {
+
+    /** Default bound on the probability mass left outside the stored window. */
+    public static final double DEFAULT_EPSILON = 1e-15;
+
+    private final int n; // Number of trials
+    private final double p; // Probability of success
+    private final double epsilon; // Upper bound on the discarded tail mass
+    private final int lowerBound; // kLow, the first stored k
+    private final double[] probabilities; // Stores P(X=kLow), ..., P(X=kHigh)
+    private final double discardedMass; // Total probability outside [kLow, kHigh]
+
+    /**
+     * Creates a truncated distribution with {@link #DEFAULT_EPSILON}.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @throws IllegalArgumentException if n < 0 or p is outside [0, 1].
+     */
+    public TruncatedBinomialDistribution(int n, double p) {
+        this(n, p, DEFAULT_EPSILON);
+    }
+
+    /**
+     * Creates a truncated distribution.
+     *
+     * @param n Number of trials (must be non-negative).
+     * @param p Probability of success in a single trial (must be between 0 and 1).
+     * @param epsilon Maximum total probability allowed outside the stored window (0 <= epsilon < 1).
+     *                Half of it may be discarded from each tail.
+     * @throws IllegalArgumentException if n < 0, p is outside [0, 1] or epsilon is outside [0, 1).
+     */
+    public TruncatedBinomialDistribution(int n, double p, double epsilon) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of trials (n) cannot be negative.");
+        }
+        if (!(p >= 0.0 && p <= 1.0)) {
+            throw new IllegalArgumentException("Probability (p) must be between 0 and 1.");
+        }
+        if (!(epsilon >= 0.0 && epsilon < 1.0)) {
+            throw new IllegalArgumentException("Epsilon must be in [0, 1). Found: " + epsilon);
+        }
+        this.n = n;
+        this.p = p;
+        this.epsilon = epsilon;
+
+        // Weights relative to the mode, already limited to the terms that don't underflow
+        int[] bounds = new int[2];
+        double[] weights = BinomialMath.calculateRelativeWeights(n, p, bounds);
+        double total = CompensatedSum.of(weights);
+        int modeIndex = BinomialMath.modeOf(n, p) - bounds[0];
+
+        // Trim each tail from the outside in while its mass stays within epsilon / 2.
+        // Summing from the outside adds the smallest terms first, which keeps the tail sums accurate.
+        double tailLimit = epsilon / 2 * total;
+        int first = 0;
+        double lowerTail = 0.0;
+        while (first < modeIndex && lowerTail + weights[first] <= tailLimit) {
+            lowerTail += weights[first++];
+        }
+        int last = weights.length - 1;
+        double upperTail = 0.0;
+        while (last > modeIndex && upperTail + weights[last] <= tailLimit) {
+            upperTail += weights[last--];
+        }
+
+        this.lowerBound = bounds[0] + first;
+        this.probabilities = new double[last - first + 1];
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = weights[first + i] / total;
+        }
+        this.discardedMass = (lowerTail + upperTail) / total;
+    }
+
+    // --- Getters ---
+
+    public int getN() {
+        return n;
+    }
+
+    public double getP() {
+        return p;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * @return kLow, the smallest k whose probability is stored.
+     */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return kHigh, the largest k whose probability is stored.
+     */
+    public int getUpperBound() {
+        return lowerBound + probabilities.length - 1;
+    }
+
+    /**
+     * @return The number of stored probabilities, kHigh - kLow + 1.
+     */
+    public int getWindowSize() {
+        return probabilities.length;
+    }
+
+    /**
+     * Gets the probability P(X=k).
+     * @param k The number of successes.
+     * @return P(X=k) if k lies inside [kLow, kHigh], otherwise 0.
+     */
+    public double getProbability(int k) {
+        int i = k - lowerBound;
+        if (i < 0 || i >= probabilities.length) {
+            return 0.0; // Outside the stored window (or outside 0..n)
+        }
+        return probabilities[i];
+    }
+
+    /**
+     * Gets the stored probabilities P(X=kLow), ..., P(X=kHigh).
+     * @return A defensive copy of the window, index `i` holds P(X = kLow + i).
+     */
+    public double[] getWindowProbabilities() {
+        return Arrays.copyOf(probabilities, probabilities.length);
+    }
+
+    /**
+     * Returns a read-only view of the window, index `i` holds P(X = kLow + i).
+     *
+     * @return A read-only DoubleBuffer sharing the internal array.
+     */
+    public DoubleBuffer getWindowBuffer() {
+        return DoubleBuffer.wrap(probabilities).asReadOnlyBuffer();
+    }
+
+    /**
+     * Visits every stored probability without copying the window.
+     *
+     * @param action Receives (k, P(X=k)) for k = kLow to kHigh.
+     */
+    public void forEach(IndexedDoubleConsumer action) {
+        for (int i = 0; i < probabilities.length; i++) {
+            action.accept(lowerBound + i, probabilities[i]);
+        }
+    }
+
+    /**
+     * @return The total probability of all k outside [kLow, kHigh], at most epsilon.
+     */
+    public double getDiscardedMass() {
+        return discardedMass;
+    }
+}
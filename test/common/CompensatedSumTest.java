@@ -0,0 +1,42 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompensatedSumTest {
+
+    @Test
+    void keepsTheBitsAPlainSumLoses() {
+        // 1 + 10^6 * 1e-16: a plain sum stays at exactly 1
+        double[] values = new double[1_000_001];
+        values[0] = 1.0;
+        Arrays.fill(values, 1, values.length, 1e-16);
+        assertEquals(1.0 + 1e-10, CompensatedSum.of(values), 1e-22);
+        // Cancellation: the 1.0 survives between the two large terms
+        assertEquals(2.0, CompensatedSum.of(new double[] {1.0, 1e100, 1.0, -1e100}));
+    }
+
+    @Test
+    void rangeAndRunningSumsAgreeWithTheWholeSum() {
+        double[] values = {0.1, 0.2, 0.3, 0.4};
+        assertEquals(0.5, CompensatedSum.of(values, 1, 3), 1e-16);
+        assertEquals(0.0, CompensatedSum.of(values, 2, 2));
+        double[] prefix = CompensatedSum.prefixSums(values);
+        double[] suffix = CompensatedSum.suffixSums(values);
+        assertEquals(CompensatedSum.of(values), prefix[3]);
+        assertEquals(0.1, prefix[0]);
+        assertEquals(0.4, suffix[3]);
+        assertEquals(1.0, suffix[0], 1e-16);
+
+        CompensatedSum sum = new CompensatedSum();
+        for (double value : values) {
+            sum.add(value);
+        }
+        assertEquals(prefix[3], sum.get());
+        assertArrayEquals(new double[0], CompensatedSum.prefixSums(new double[0]));
+    }
+}
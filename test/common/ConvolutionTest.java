@@ -0,0 +1,117 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the direct and FFT kernels, and the distribution-level entry points, against the
+ * textbook O(n*m) double loop.
+ */
+class ConvolutionTest {
+
+    @Test
+    void bothKernelsMatchTheNaiveConvolution() {
+        SplittableRandom random = new SplittableRandom(15);
+        int[][] lengths = {{1, 1}, {1, 7}, {3, 5}, {64, 64}, {100, 3}, {257, 1000}, {4096, 4095}};
+        for (int[] pair : lengths) {
+            double[] a = randomTable(pair[0], random);
+            double[] b = randomTable(pair[1], random);
+            double[] expected = naive(a, b);
+            // Relative to the largest entry: FFT rounding is about 1e-16 * log2(L) per entry,
+            // the direct sums round like any sum of min(n, m) terms in a different order
+            double tolerance = 1e-15 * (1 + Math.log(expected.length) / Math.log(2));
+            double directTolerance = 1e-16 * Math.min(a.length, b.length) + 1e-15;
+            assertClose(expected, Convolution.convolveDirect(a, b), directTolerance, "direct " + pair[0] + "x" + pair[1]);
+            assertClose(expected, Convolution.convolveFft(a, b), tolerance, "FFT " + pair[0] + "x" + pair[1]);
+            assertClose(expected, Convolution.convolve(a, b), Math.max(tolerance, directTolerance),
+                    "convolve " + pair[0] + "x" + pair[1]);
+        }
+    }
+
+    @Test
+    void powerMatchesRepeatedNaiveConvolution() {
+        double[] die = {1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0, 1 / 6.0};
+        double[] expected = {1.0};
+        for (int m = 0; m <= 40; m++) {
+            // Each squaring step rescales, so a few roundings per step
+            assertClose(expected, Convolution.power(die, m), 1e-13, "m = " + m);
+            expected = naive(expected, die);
+        }
+    }
+
+    @Test
+    void distributionsKeepTheirOffsets() {
+        DiscreteProbabilityDistribution coin = new DiscreteProbabilityDistribution(
+                new double[] {-1, 1}, new double[] {0.5, 0.5});
+        DiscreteProbabilityDistribution sum = Convolution.power(coin, 3);
+        assertEquals(7, sum.getSize()); // -3 .. 3, the even sums have probability 0
+        assertEquals(-3.0, sum.getX(0));
+        assertEquals(0.375, sum.getP(2), 1e-15); // P(X = -1)
+        assertEquals(0.0, sum.getExpectedValue(), 1e-15);
+        assertEquals(3.0, sum.getVariance(), 1e-14);
+
+        DiscreteProbabilityDistribution shifted = Convolution.convolve(coin, new DiscreteProbabilityDistribution(
+                new double[] {10}, new double[] {1.0}));
+        assertEquals(9.0, shifted.getX(0));
+        assertEquals(11.0, shifted.getX(2));
+    }
+
+    @Test
+    void rejectsOffsetsThatOverflowALong() {
+        DiscreteProbabilityDistribution far = new DiscreteProbabilityDistribution(
+                new double[] {-(double) (1L << 52)}, new double[] {1.0});
+        // 2^52 * 2^11 = 2^63 still fits as Long.MIN_VALUE, 2^52 * 2^12 does not
+        assertEquals(-0x1p63, Convolution.power(far, 2048).getX(0));
+        assertThrows(IllegalArgumentException.class, () -> Convolution.power(far, 4096));
+        assertThrows(IllegalArgumentException.class, () -> Convolution.sum(Collections.nCopies(4096, far)));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> Convolution.convolve(new double[0], new double[] {1}));
+        assertThrows(IllegalArgumentException.class, () -> Convolution.power(new double[] {1}, -1));
+        assertThrows(IllegalArgumentException.class, () -> Convolution.sum(new ArrayList<>()));
+        DiscreteProbabilityDistribution half = new DiscreteProbabilityDistribution(
+                new double[] {0.5}, new double[] {1.0});
+        assertThrows(IllegalArgumentException.class, () -> Convolution.convolve(half, half));
+        assertTrue(Convolution.prefersDirect(3, 5));
+        assertFalse(Convolution.prefersDirect(4096, 4096));
+    }
+
+    private static double[] naive(double[] a, double[] b) {
+        double[] c = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                c[i + j] += a[i] * b[j];
+            }
+        }
+        return c;
+    }
+
+    private static double[] randomTable(int length, SplittableRandom random) {
+        double[] table = new double[length];
+        for (int i = 0; i < length; i++) {
+            table[i] = random.nextDouble() / length;
+        }
+        return table;
+    }
+
+    private static void assertClose(double[] expected, double[] actual, double relative, String what) {
+        assertEquals(expected.length, actual.length, what);
+        double scale = 0.0;
+        for (double v : expected) {
+            scale = Math.max(scale, v);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], relative * scale, what + ", index " + i);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogLinearHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int v = 0; v < 64; v++) {
+            histogram.record(v);
+        }
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(64, snapshot.getCount());
+        assertEquals(63 * 64 / 2, snapshot.getSum());
+        assertEquals(63, snapshot.getMax());
+        assertEquals(31.5, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAtQuantile(0.0));
+        assertEquals(31, snapshot.getValueAtQuantile(0.5));
+        assertEquals(63, snapshot.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void quantilesOfLargeValuesAreWithinOneSubBucket() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        int count = 100_000;
+        for (int v = 1; v <= count; v++) {
+            histogram.record(v);
+        }
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(count, snapshot.getCount());
+        assertEquals((long) count * (count + 1) / 2, snapshot.getSum());
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = (long) Math.ceil(quantile * count);
+            long value = snapshot.getValueAtQuantile(quantile);
+            assertTrue(value >= exact && value <= exact * (1 + 1.0 / 32),
+                    "p" + quantile + " = " + value + ", exact " + exact);
+        }
+        assertEquals(count, snapshot.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void quantilesNeverExceedTheMaximum() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(1_000_001);
+        assertEquals(1_000_001, histogram.snapshot().getValueAtQuantile(0.99));
+    }
+
+    @Test
+    void everyValueFallsInsideItsBucket() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE) >>> random.nextInt(64);
+            int index = LogLinearHistogram.indexOf(value);
+            assertTrue(LogLinearHistogram.lowestValue(index) <= value, "Below bucket " + index + ": " + value);
+            assertTrue(LogLinearHistogram.highestValue(index) >= value, "Above bucket " + index + ": " + value);
+        }
+        assertEquals(LogLinearHistogram.BUCKETS - 1, LogLinearHistogram.indexOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LogLinearHistogram.highestValue(LogLinearHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(-5);
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getSum());
+        assertEquals(0, snapshot.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void emptyAndResetHistogramsReportZero() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtQuantile(0.99));
+        assertEquals(0.0, histogram.snapshot().getMean());
+        histogram.record(42);
+        histogram.reset();
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtQuantile(1.5));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(400_000, snapshot.getCount());
+        assertEquals(4L * 99_999 * 100_000 / 2, snapshot.getSum());
+        assertEquals(99_999, snapshot.getMax());
+    }
+}
@@ -0,0 +1,59 @@
+package common;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void textHasOneTypeLinePerFamily() {
+        Metrics.histogram("test.text.nanos").record(5);
+        Metrics.counter("test.text.calls").add(3);
+        String text = Metrics.snapshotText().replace(System.lineSeparator(), "\n");
+        assertTrue(text.contains("# TYPE test_text_calls_total counter\ntest_text_calls_total 3\n"), text);
+        assertTrue(text.contains("# TYPE test_text_nanos summary\n"
+                + "test_text_nanos{quantile=\"0.5\"} 5\n"), text);
+        assertTrue(text.contains("test_text_nanos_count 1\n"
+                + "# TYPE test_text_nanos_max gauge\n"
+                + "test_text_nanos_max 5\n"), text);
+    }
+
+    @Test
+    void httpEndpointServesTheSnapshot() throws IOException, InterruptedException {
+        Metrics.histogram("test.scrape.nanos").record(1_000);
+        HttpServer server = Metrics.startHttpServer(0);
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            String body = response.body().replace(System.lineSeparator(), "\n");
+            assertTrue(body.startsWith("# Probability library metrics"), body);
+            assertTrue(body.contains("test_scrape_nanos_count 1\n"), body);
+
+            HttpResponse<String> post = client.send(
+                    HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, post.statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void rejectsInvalidNames() {
+        assertThrows(IllegalArgumentException.class, () -> Metrics.counter(""));
+    }
+}
@@ -0,0 +1,78 @@
+package number2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks every approximation against the exact LOG_RECURRENCE table: each pmf, CDF and
+ * survival value must be within getErrorBound() of the exact one, for every k in [0, n].
+ */
+class BinomialApproximationTest {
+
+    @ParameterizedTest(name = "n = {0}, p = {1}, tolerance = {2}")
+    @CsvSource({
+            // Berry-Esseen bound about 1e-3
+            "1000000, 0.4, 1e-2, NORMAL",
+            "100000, 0.5, 1e-2, NORMAL",
+            // lambda = 1, Barbour-Hall bound about 6e-5
+            "10000, 0.0001, 1e-3, POISSON",
+            "10000, 0.9999, 1e-3, POISSON", // Mirrored: Poisson on the failures
+            "50, 0.02, 2e-2, POISSON", // Bound about 1.3e-2
+            // Neither bound is anywhere near 1e-10
+            "1000, 0.3, 1e-10, SADDLE_POINT",
+            "1000, 0.97, 1e-10, SADDLE_POINT",
+            "100000, 0.5, 1e-6, SADDLE_POINT",
+    })
+    void staysWithinItsErrorBound(int n, double p, double tolerance, BinomialApproximation.Method expected) {
+        BinomialApproximation approximation = new BinomialApproximation(n, p, tolerance);
+        assertEquals(expected, approximation.getMethod());
+        double bound = approximation.getErrorBound();
+        assertTrue(bound <= tolerance, "Bound " + bound + " above tolerance " + tolerance);
+
+        BinomialDistribution exact = new BinomialDistribution(n, p, BinomialDistribution.TableMode.LOG_RECURRENCE);
+        for (int k = 0; k <= n; k++) {
+            assertWithin(exact.getProbability(k), approximation.probability(k), bound, "P(X=" + k + ")");
+            assertWithin(exact.cdf(k), approximation.cdf(k), bound, "P(X<=" + k + ")");
+            assertWithin(exact.survival(k), approximation.survival(k), bound, "P(X>" + k + ")");
+        }
+        assertEquals(0.0, approximation.probability(-1));
+        assertEquals(0.0, approximation.probability(n + 1));
+    }
+
+    private static void assertWithin(double exact, double approximate, double bound, String what) {
+        assertTrue(Math.abs(approximate - exact) <= bound,
+                what + ": approximation " + approximate + ", exact " + exact + ", bound " + bound);
+    }
+
+    @ParameterizedTest(name = "n = {0}, p = {1}, tolerance = {2}")
+    @CsvSource({
+            "1000000000, 0.5, 1e-4, NORMAL",
+            "1000000000, 1e-9, 1e-4, POISSON",
+            "1000000000, 0.5, 1e-6, SADDLE_POINT",
+            "0, 0.5, 1e-12, POISSON", // Degenerate: every bound is 0 or infinite
+            "100, 0.0, 1e-12, POISSON",
+    })
+    void picksTheCheapestMethodThatMeetsTheTolerance(int n, double p, double tolerance,
+                                                     BinomialApproximation.Method expected) {
+        assertEquals(expected, new BinomialApproximation(n, p, tolerance).getMethod());
+    }
+
+    @Test
+    void saddlePointReportsItsOwnBoundWhenTheToleranceIsTooTight() {
+        BinomialApproximation approximation = new BinomialApproximation(1000, 0.3, 1e-20);
+        assertEquals(BinomialApproximation.Method.SADDLE_POINT, approximation.getMethod());
+        assertEquals(BinomialApproximation.SADDLE_POINT_ERROR, approximation.getErrorBound());
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BinomialApproximation(-1, 0.5, 1e-3));
+        assertThrows(IllegalArgumentException.class, () -> new BinomialApproximation(10, Double.NaN, 1e-3));
+        assertThrows(IllegalArgumentException.class, () -> new BinomialApproximation(10, 0.5, 0.0));
+    }
+}
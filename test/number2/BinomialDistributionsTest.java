@@ -0,0 +1,67 @@
+package number2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinomialDistributionsTest {
+
+    @Test
+    void repeatedLookupsAreHits() {
+        BinomialDistributions cache = new BinomialDistributions(1024 * 1024);
+        BinomialDistribution first = cache.get(100, 0.3);
+        assertSame(first, cache.get(100, 0.3));
+        assertSame(first, cache.get(100, 0.3));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getWaitCount());
+        assertEquals(101L * Double.BYTES, cache.getCachedBytes());
+    }
+
+    @Test
+    void concurrentCallersBuildOnceAndAreNotCountedAsHits() throws InterruptedException {
+        BinomialDistributions cache = new BinomialDistributions(64L * 1024 * 1024);
+        int callers = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        BinomialDistribution[] results = new BinomialDistribution[callers];
+        Thread[] threads = new Thread[callers];
+        for (int t = 0; t < callers; t++) {
+            final int index = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                results[index] = cache.get(2_000_000, 0.25);
+            });
+            threads[t].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, cache.getMissCount());
+        // Each other caller either waited for the build or came after it was stored
+        assertEquals(callers - 1, cache.getHitCount() + cache.getWaitCount());
+        for (BinomialDistribution result : results) {
+            assertSame(results[0], result);
+        }
+    }
+
+    @Test
+    void rejectsInvalidParametersBeforeTouchingTheCache() {
+        BinomialDistributions cache = new BinomialDistributions(1024);
+        assertThrows(IllegalArgumentException.class, () -> cache.get(10, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(10, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(-1, 0.5));
+        assertEquals(0, cache.getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> new BinomialDistribution(10, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new TruncatedBinomialDistribution(10, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new BinomialSampler(10, Double.NaN));
+    }
+}
@@ -0,0 +1,130 @@
+package number2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statistical checks of BinomialSampler against the exact distribution: the sample mean and
+ * variance as z-scores against n*p and n*p*q, and a chi-square test over the effective support.
+ * The seed is fixed, so a failure is a real change in the sampler, not bad luck.
+ */
+class BinomialSamplerTest {
+
+    private static final int DRAWS = 400_000;
+    private static final double MAX_Z = 5.0;
+
+    @ParameterizedTest(name = "n = {0}, p = {1}")
+    @CsvSource({
+            "10, 0.001", "10, 0.3", "10, 0.9",
+            "1000, 0.001", "1000, 0.3", "1000, 0.9",
+            "1000000, 0.001", "1000000, 0.3", "1000000, 0.9",
+            "1000000000, 0.001", "1000000000, 0.3", "1000000000, 0.9",
+    })
+    void samplesMatchTheExactDistribution(int n, double p) {
+        int[] samples = new int[DRAWS];
+        new BinomialSampler(n, p).fill(samples, new SplittableRandom(2024));
+
+        double mean = (double) n * p;
+        double variance = mean * (1 - p);
+        double sum = 0;
+        double sumSq = 0;
+        for (int x : samples) {
+            assertTrue(x >= 0 && x <= n, "Sample outside [0, n]: " + x);
+            double d = x - mean;
+            sum += d;
+            sumSq += d * d;
+        }
+        double sampleMean = mean + sum / DRAWS;
+        double sampleVariance = (sumSq - sum * sum / DRAWS) / (DRAWS - 1);
+        double meanZ = (sampleMean - mean) / Math.sqrt(variance / DRAWS);
+        // Var of the sample variance is about (mu4 - sigma^4) / count, mu4 = 3 sigma^4 + sigma^2 (1 - 6pq)
+        double mu4 = 3 * variance * variance + variance * (1 - 6 * p * (1 - p));
+        double varianceZ = (sampleVariance - variance) / Math.sqrt((mu4 - variance * variance) / DRAWS);
+        assertTrue(Math.abs(meanZ) < MAX_Z, "Mean z-score " + meanZ);
+        assertTrue(Math.abs(varianceZ) < MAX_Z, "Variance z-score " + varianceZ);
+
+        double[] chiSquare = chiSquare(samples, n, p);
+        double dof = chiSquare[1];
+        assertTrue(chiSquare[0] < dof + MAX_Z * Math.sqrt(2 * dof),
+                "Chi-square " + chiSquare[0] + " with " + dof + " degrees of freedom");
+    }
+
+    /**
+     * Pearson's statistic over the bins of the effective support, pooling bins with an
+     * expected count below 5 (and everything outside the support) into one.
+     *
+     * @return {chi-square, degrees of freedom}.
+     */
+    private static double[] chiSquare(int[] samples, int n, double p) {
+        TruncatedBinomialDistribution exact = new TruncatedBinomialDistribution(n, p, 1e-12);
+        int low = exact.getLowerBound();
+        long[] observed = new long[exact.getWindowSize()];
+        long outside = 0;
+        for (int x : samples) {
+            int i = x - low;
+            if (i >= 0 && i < observed.length) {
+                observed[i]++;
+            } else {
+                outside++;
+            }
+        }
+        double chi2 = 0;
+        int bins = 0;
+        double pooledExpected = exact.getDiscardedMass() * samples.length;
+        long pooledObserved = outside;
+        for (int i = 0; i < observed.length; i++) {
+            double expected = exact.getProbability(low + i) * samples.length;
+            if (expected < 5) {
+                pooledExpected += expected;
+                pooledObserved += observed[i];
+            } else {
+                chi2 += (observed[i] - expected) * (observed[i] - expected) / expected;
+                bins++;
+            }
+        }
+        if (pooledExpected > 0) {
+            chi2 += (pooledObserved - pooledExpected) * (pooledObserved - pooledExpected) / pooledExpected;
+            bins++;
+        }
+        return new double[] {chi2, Math.max(bins - 1, 1)};
+    }
+
+    @Test
+    void degenerateProbabilitiesAlwaysGiveTheSameValue() {
+        SplittableRandom random = new SplittableRandom(1);
+        assertEquals(0, new BinomialSampler(50, 0.0).sample(random));
+        assertEquals(50, new BinomialSampler(50, 1.0).sample(random));
+        assertEquals(0, new BinomialSampler(0, 0.5).sample(random));
+    }
+
+    @Test
+    void fillDrawsTheSameSequenceAsSample() {
+        for (double p : new double[] {0.01, 0.7}) {
+            BinomialSampler sampler = new BinomialSampler(10_000, p);
+            int[] filled = new int[1_000];
+            sampler.fill(filled, new SplittableRandom(5));
+            int[] drawn = new int[filled.length];
+            SplittableRandom random = new SplittableRandom(5);
+            for (int i = 0; i < drawn.length; i++) {
+                drawn[i] = sampler.sample(random);
+            }
+            assertArrayEquals(drawn, filled);
+        }
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BinomialSampler(-1, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new BinomialSampler(10, 1.5));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> new BinomialSampler(10, 0.5).fill(new int[4], 2, 5, new SplittableRandom(1)));
+    }
+}
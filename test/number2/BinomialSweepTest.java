@@ -0,0 +1,98 @@
+package number2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks every sweep series against BinomialMath.calculateAllProbabilities, the table
+ * the sweep's shared log(j) walk is meant to reproduce.
+ */
+class BinomialSweepTest {
+
+    // Relative tolerance over entries above 1e-300; the class promises about 1e-12
+    private static final double TOLERANCE = 1e-10;
+
+    @Test
+    void overPMatchesCalculateAllProbabilities() {
+        double[] grid = new double[99];
+        for (int j = 0; j < grid.length; j++) {
+            grid[j] = (j + 1) / 100.0;
+        }
+        for (int n : new int[] {0, 1, 10, 1_000, 100_000}) {
+            BinomialSweep sweep = BinomialSweep.overP(n, grid);
+            assertEquals(grid.length, sweep.getSeriesCount());
+            assertEquals(n + 1, sweep.getStride());
+            for (int j = 0; j < grid.length; j++) {
+                assertEquals(n, sweep.getN(j));
+                assertEquals(grid[j], sweep.getP(j));
+                assertClose(BinomialMath.calculateAllProbabilities(n, grid[j]), sweep, j);
+            }
+        }
+    }
+
+    @Test
+    void overNMatchesCalculateAllProbabilitiesAndPadsWithZeros() {
+        int[] ns = {5_000, 1, 0, 20_000, 777};
+        ForkJoinPool pool = new ForkJoinPool(3);
+        BinomialSweep sweep;
+        try {
+            sweep = BinomialSweep.overN(ns, 0.3, pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(20_001, sweep.getStride());
+        for (int i = 0; i < ns.length; i++) {
+            assertClose(BinomialMath.calculateAllProbabilities(ns[i], 0.3), sweep, i);
+            assertEquals(0.0, sweep.getProbability(i, ns[i] + 1));
+            assertEquals(0.0, sweep.getProbability(i, -1));
+        }
+        DoubleBuffer padded = sweep.getBuffer();
+        assertEquals(0.0, padded.get(2 * sweep.getStride() + 1)); // n = 0 holds only P(X=0)
+    }
+
+    @Test
+    void edgeProbabilitiesPutAllMassOnOneEnd() {
+        BinomialSweep sweep = BinomialSweep.overP(50, new double[] {0.0, 1.0});
+        assertEquals(1.0, sweep.getProbability(0, 0));
+        assertEquals(1.0, sweep.getProbability(1, 50));
+        assertEquals(0.0, sweep.getProbability(1, 49));
+    }
+
+    @Test
+    void seriesViewsAreReadOnlyAndSized() {
+        BinomialSweep sweep = BinomialSweep.overN(new int[] {3, 8}, 0.5);
+        DoubleBuffer series = sweep.getSeries(0);
+        assertEquals(4, series.remaining());
+        assertTrue(series.isReadOnly());
+        assertEquals(0.125, series.get(0), 1e-15);
+        assertThrows(IndexOutOfBoundsException.class, () -> sweep.getSeries(2));
+    }
+
+    @Test
+    void rejectsInvalidGrids() {
+        assertThrows(IllegalArgumentException.class, () -> BinomialSweep.overP(-1, new double[] {0.5}));
+        assertThrows(IllegalArgumentException.class, () -> BinomialSweep.overP(10, new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> BinomialSweep.overP(10, new double[] {Double.NaN}));
+        assertThrows(IllegalArgumentException.class, () -> BinomialSweep.overN(new int[] {5, -1}, 0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinomialSweep.overP(Integer.MAX_VALUE - 1, new double[] {0.1, 0.2}));
+    }
+
+    private static void assertClose(double[] expected, BinomialSweep sweep, int series) {
+        for (int k = 0; k < expected.length; k++) {
+            double actual = sweep.getProbability(series, k);
+            if (expected[k] > 1e-300) {
+                assertEquals(expected[k], actual, TOLERANCE * expected[k],
+                        "series " + series + " (n = " + sweep.getN(series) + ", p = " + sweep.getP(series) + "), k = " + k);
+            } else {
+                assertTrue(actual <= 1e-290, "Tail entry " + k + " of series " + series + " is " + actual);
+            }
+        }
+    }
+}
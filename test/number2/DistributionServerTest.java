@@ -0,0 +1,177 @@
+package number2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through a real server on the loopback interface: one request line out,
+ * one response line back, in order, for every command and each kind of error.
+ */
+class DistributionServerTest {
+
+    // A 1 MiB cache, so CDF and QUANTILE accept n up to 1 MiB / 8 / 4 - 1 = 32767
+    private static final long CACHE_BYTES = 1024 * 1024;
+    private static final String TABLE = "0:0.1,1:0.2,2:0.4,3:0.2,4:0.1";
+
+    private BinomialDistributions binomials;
+    private DistributionServer server;
+    private Socket socket;
+    private BufferedReader in;
+    private OutputStream out;
+
+    @BeforeEach
+    void connect() throws IOException {
+        binomials = new BinomialDistributions(CACHE_BYTES);
+        server = DistributionServer.start(0, binomials);
+        socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10_000);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        out = socket.getOutputStream();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    private String ask(String request) throws IOException {
+        out.write((request + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return in.readLine();
+    }
+
+    private static double[] values(String response) {
+        assertTrue(response.startsWith("OK "), response);
+        String[] words = response.substring(3).split(" ");
+        double[] values = new double[words.length];
+        for (int i = 0; i < words.length; i++) {
+            values[i] = Double.parseDouble(words[i]);
+        }
+        return values;
+    }
+
+    // --- Binomial ---
+
+    @Test
+    void answersBinomialQueries() throws IOException {
+        assertEquals("OK", ask("PING"));
+        BinomialDistribution distribution = new BinomialDistribution(20, 0.3);
+        assertEquals(distribution.getProbability(6), values(ask("PMF binomial 20 0.3 6"))[0], 1e-14);
+        assertEquals(distribution.cdf(6), values(ask("cdf BINOMIAL 20 0.3 6"))[0], 1e-14);
+        assertEquals("OK " + distribution.quantile(0.5), ask("QUANTILE binomial 20 0.3 0.5"));
+        double[] moments = values(ask("MOMENTS binomial 20 0.3"));
+        assertEquals(6.0, moments[0], 1e-12);
+        assertEquals(4.2, moments[1], 1e-12);
+    }
+
+    @Test
+    void pmfNeedsNoTableAndIsZeroOutsideTheSupport() throws IOException {
+        double expected = BinomialMath.calculateProbability(100_000_000, 50_000_000, 0.5, BinomialMath.Precision.LOG);
+        assertEquals("OK " + expected, ask("PMF binomial 100000000 0.5 50000000"));
+        assertEquals("OK 0.0", ask("PMF binomial 10 0.5 11"));
+        assertEquals("OK 0.0", ask("PMF binomial 10 0.5 -1"));
+    }
+
+    @Test
+    void tableQueriesAreLimitedByTheCache() throws IOException {
+        assertTrue(ask("CDF binomial 32767 0.5 16000").startsWith("OK "));
+        assertEquals("ERR Number of trials (n) above 32767 is not served.", ask("CDF binomial 32768 0.5 3"));
+        assertEquals("ERR Number of trials (n) above 32767 is not served.", ask("QUANTILE binomial 40000 0.5 0.5"));
+    }
+
+    @Test
+    void rejectsBadBinomialRequests() throws IOException {
+        assertEquals("ERR Number of trials (n) cannot be negative.", ask("PMF binomial -1 0.5 0"));
+        assertEquals("ERR n must be a whole number. Found: ten", ask("PMF binomial ten 0.5 0"));
+        assertEquals("ERR p must be between 0 and 1. Found: 1.5", ask("CDF binomial 10 1.5 3"));
+        assertEquals("ERR u must be between 0 and 1. Found: 2", ask("QUANTILE binomial 10 0.5 2"));
+        assertEquals("ERR Expected 5 words, found 4.", ask("PMF binomial 10 0.5"));
+        assertEquals("ERR Unknown request: FOO", ask("FOO binomial 10 0.5 1"));
+    }
+
+    // --- Discrete ---
+
+    @Test
+    void answersDiscreteQueries() throws IOException {
+        assertEquals("OK 0.4", ask("PMF discrete " + TABLE + " 2"));
+        assertEquals(0.7, values(ask("CDF discrete " + TABLE + " 2.5"))[0], 1e-15);
+        assertEquals("OK 2.0", ask("QUANTILE discrete " + TABLE + " 0.5"));
+        double[] moments = values(ask("MOMENTS discrete " + TABLE));
+        assertEquals(2.0, moments[0], 1e-15);
+        assertEquals(1.2, moments[1], 1e-15);
+    }
+
+    @Test
+    void rejectsBadDiscreteTables() throws IOException {
+        assertEquals("ERR Table entries are written x:p. Found: 1", ask("CDF discrete 0:0.5,1 1"));
+        assertTrue(ask("CDF discrete 0:0.5,1:0.4 1").startsWith("ERR Probabilities do not sum to 1"));
+        StringBuilder large = new StringBuilder("CDF discrete 0:1");
+        for (int i = 1; i <= DistributionServer.MAX_DISCRETE_ENTRIES; i++) {
+            large.append(',').append(i).append(":0");
+        }
+        assertEquals("ERR A table of 4097 entries exceeds 4096 entries.", ask(large + " 1"));
+    }
+
+    // --- Protocol ---
+
+    @Test
+    void rejectsUnknownRequests() throws IOException {
+        assertEquals("ERR Unknown request: HELLO", ask("HELLO"));
+        assertEquals("ERR Unknown distribution: poisson", ask("PMF poisson 3 1"));
+    }
+
+    @Test
+    void skipsOverlongLinesAndKeepsTheConnection() throws IOException {
+        String longLine = "PING " + "x".repeat(DistributionServer.MAX_LINE_LENGTH);
+        assertEquals("ERR line too long", ask(longLine));
+        assertEquals("OK", ask("PING"));
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        out.write(("PING\nPMF binomial 4 0.5 2\nBAD\r\nCDF discrete " + TABLE + " 4\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        assertEquals("OK", in.readLine());
+        assertEquals(0.375, values(in.readLine())[0], 1e-15);
+        assertEquals("ERR Unknown request: BAD", in.readLine());
+        assertEquals(1.0, values(in.readLine())[0], 1e-15);
+    }
+
+    @Test
+    void looksUpEachTableOncePerBatch() throws IOException {
+        out.write(("CDF binomial 20 0.3 5\nCDF binomial 30 0.5 5\nCDF binomial 20 0.3 6\n"
+                + "QUANTILE binomial 30 0.5 0.5\nCDF binomial 20 0.3 7\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        BinomialDistribution first = new BinomialDistribution(20, 0.3);
+        assertEquals(first.cdf(5), values(in.readLine())[0], 1e-14);
+        assertEquals(new BinomialDistribution(30, 0.5).cdf(5), values(in.readLine())[0], 1e-14);
+        assertEquals(first.cdf(6), values(in.readLine())[0], 1e-14);
+        assertEquals("OK 15", in.readLine());
+        assertEquals(first.cdf(7), values(in.readLine())[0], 1e-14);
+        assertEquals(2, binomials.getMissCount());
+        assertEquals(0, binomials.getHitCount());
+    }
+
+    @Test
+    void quitClosesTheConnection() throws IOException {
+        assertEquals("OK", ask("PING"));
+        out.write("QUIT\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        assertNull(in.readLine());
+    }
+}
@@ -0,0 +1,51 @@
+package number2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TruncatedBinomialDistributionTest {
+
+    @Test
+    void modeIsFloorOfNPlusOneTimesP() {
+        assertEquals(3, BinomialMath.modeOf(10, 0.3));
+        assertEquals(10, BinomialMath.modeOf(10, 1.0));
+        assertEquals(0, BinomialMath.modeOf(0, 0.5));
+        // (n + 1) * p in int arithmetic wraps to a negative mode here
+        assertEquals(1 << 30, BinomialMath.modeOf(Integer.MAX_VALUE, 0.5));
+        assertEquals(Integer.MAX_VALUE, BinomialMath.modeOf(Integer.MAX_VALUE, 1.0));
+    }
+
+    @Test
+    void windowAtTheLargestNSurroundsTheMode() {
+        int n = Integer.MAX_VALUE;
+        TruncatedBinomialDistribution distribution = new TruncatedBinomialDistribution(n, 0.5);
+        int mode = BinomialMath.modeOf(n, 0.5);
+        assertTrue(distribution.getLowerBound() < mode && distribution.getUpperBound() > mode,
+                "[" + distribution.getLowerBound() + ", " + distribution.getUpperBound() + "]");
+        // About 1 / sqrt(2 pi n p q) at the centre
+        assertEquals(Math.sqrt(2.0 / (Math.PI * n)), distribution.getProbability(mode), 1e-9);
+        assertTrue(distribution.getDiscardedMass() <= distribution.getEpsilon());
+    }
+
+    @Test
+    void windowKeepsAllButEpsilonOfTheMass() {
+        TruncatedBinomialDistribution distribution = new TruncatedBinomialDistribution(1_000, 0.3, 1e-6);
+        double sum = 0.0;
+        for (double probability : distribution.getWindowProbabilities()) {
+            sum += probability;
+        }
+        assertEquals(1.0, sum + distribution.getDiscardedMass(), 1e-12);
+        assertTrue(distribution.getDiscardedMass() <= 1e-6);
+        assertEquals(0.0, distribution.getProbability(distribution.getLowerBound() - 1));
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TruncatedBinomialDistribution(-1, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new TruncatedBinomialDistribution(10, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new TruncatedBinomialDistribution(10, 0.5, 1.0));
+    }
+}